@@ -1,9 +1,8 @@
 package maksim.booksservice.aop;
 
-import jakarta.servlet.http.HttpServletRequest;
 import maksim.booksservice.services.kafka.producers.VisitEventsProducer;
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
@@ -11,8 +10,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 @Aspect
 @Component
@@ -29,18 +26,26 @@ public class ControllerVisitPushingAspect {
     @Pointcut("within(@org.springframework.web.bind.annotation.RestController *)")
     public void controllerMethods() {}
 
-    @AfterReturning(pointcut = "controllerMethods()", returning = "result")
-    public void pushVisitAfterControllerMethodEnd(JoinPoint joinPoint, Object result) {
+    // Visit is counted with its wall-clock latency, failed calls (exception thrown by controller) are counted as errors
+    @Around("controllerMethods()")
+    public Object pushVisitAroundControllerMethod(ProceedingJoinPoint joinPoint) throws Throwable {
         logger.trace("ControllerVisitPushingAspect entrance");
 
-        HttpServletRequest request =
-            ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest();
-
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         String methodName = signature.getMethod().getName();
 
-        visitEventsProducer.addAndPublishVisit("book-service", methodName);
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+
+            return result;
+        } finally {
+            visitEventsProducer.addAndPublishVisit("book-service", methodName, System.nanoTime() - start, failed);
 
-        logger.trace("ControllerVisitPushingAspect end");
+            logger.trace("ControllerVisitPushingAspect end");
+        }
     }
 }
@@ -13,9 +13,91 @@ public class AppConfig {
     @Value("${spring.application.book-files-directory}")
     private String bookFilesDirectory;
 
+    @Value("${spring.application.book-files-delivery}")
+    private String bookFilesDelivery;
+
+    @Value("${spring.application.book-files-internal-location}")
+    private String bookFilesInternalLocation;
+
+    @Value("${spring.application.book-files-release-delay}")
+    private Long bookFilesReleaseDelay;
+
     @Value("${spring.application.upload_visits_size}")
     private Long visitsUploadSize;
 
+    @Value("${spring.application.upload_visits_interval}")
+    private Long visitsUploadInterval;
+
+
+    /*
+        CHUNKED UPLOADS PARAMETERS:
+        directory of upload sessions and limits for resumable book file uploads (bytes, ms)
+     */
+
+    @Value("${spring.application.uploads.directory}")
+    private String uploadsDirectory;
+
+    @Value("${spring.application.uploads.max-file-size}")
+    private Long uploadMaxFileSize;
+
+    @Value("${spring.application.uploads.max-chunk-size}")
+    private Long uploadMaxChunkSize;
+
+    @Value("${spring.application.uploads.expiration-time}")
+    private Long uploadExpirationTime;
+
+
+    /*
+        PAGED READING PARAMETERS:
+        txt/md books are split into pages by lines count, too long lines are split by bytes
+     */
+
+    @Value("${spring.application.pages.lines-per-page}")
+    private Integer pageLines;
+
+    @Value("${spring.application.pages.max-page-bytes}")
+    private Integer pageMaxBytes;
+
+    @Value("${spring.application.pages.max-pages-per-request}")
+    private Integer pagesMaxCount;
+
+
+    /*
+        LOGS PARAMETERS:
+        directory of logback files (logback.xml), directory of requested logs exports,
+        count of exports which are generated or downloaded at the same time and time exports are kept (ms)
+     */
+
+    @Value("${spring.application.logs.directory}")
+    private String logsDirectory;
+
+    @Value("${spring.application.logs.requested-directory}")
+    private String requestedLogsDirectory;
+
+    @Value("${spring.application.logs.max-exports}")
+    private Integer logsMaxExports;
+
+    @Value("${spring.application.logs.expiration-time}")
+    private Long logsExpirationTime;
+
+
+    /*
+        CACHE PARAMETERS:
+        limits for books query cache and books by id cache
+     */
+
+    @Value("${spring.application.cache.max-entries}")
+    private Long cacheMaxEntries;
+
+    @Value("${spring.application.cache.max-bytes}")
+    private Long cacheMaxBytes;
+
+    @Value("${spring.application.cache.book-max-entries}")
+    private Long cacheBookMaxEntries;
+
+    @Value("${spring.application.cache.book-expiration-time}")
+    private Long cacheBookExpirationTime;
+
 
     /*
         SERViCES PARAMS:
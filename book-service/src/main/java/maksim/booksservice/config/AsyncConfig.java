@@ -21,4 +21,16 @@ public class AsyncConfig {
         return executor;
     }
 
+    // Compression is cpu bound and can wait, so it never takes more than a couple of cores
+    @Bean(name = "compressionTaskExecutor")
+    public Executor compressionTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("CompressionThread-");
+        executor.initialize();
+        return executor;
+    }
+
 }
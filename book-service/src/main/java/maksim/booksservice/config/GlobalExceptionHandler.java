@@ -7,6 +7,7 @@ import java.util.Map;
 import maksim.booksservice.exceptions.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -60,6 +61,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<String> handleTooManyRequestsExceptions(TooManyRequestsException ex) {
+        logger.trace(ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "10")
+            .body(ex.getMessage());
+    }
+
     @ExceptionHandler(AcceptedException.class)
     public ResponseEntity<String> handleAcceptedExceptions(AcceptedException ex) {
         logger.error(ex.getMessage());
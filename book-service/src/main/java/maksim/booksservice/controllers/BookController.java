@@ -8,24 +8,31 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import maksim.booksservice.exceptions.BadRequestException;
 import maksim.booksservice.models.dtos.result.BookDto;
+import maksim.booksservice.models.dtos.result.BookPagesDto;
 import maksim.booksservice.models.dtos.crud.CreateBookDto;
+import maksim.booksservice.models.dtos.crud.CreateUploadDto;
 import maksim.booksservice.models.dtos.crud.UpdateBookDto;
+import maksim.booksservice.models.dtos.result.UploadDto;
+import maksim.booksservice.services.BookPageService;
 import maksim.booksservice.services.BookService;
+import maksim.booksservice.services.BookUploadService;
 import maksim.booksservice.services.CachingService;
 import maksim.booksservice.utils.Pagination;
+import maksim.booksservice.utils.bookutils.BookCacheKey;
+import maksim.booksservice.utils.bookutils.BookContinuationToken;
+import maksim.booksservice.utils.bookutils.BookFile;
+import maksim.booksservice.utils.bookutils.BookFileSender;
 import maksim.booksservice.utils.bookutils.BookSearchCriteria;
 import maksim.booksservice.utils.enums.JoinMode;
 import maksim.booksservice.utils.enums.SortDirection;
@@ -38,11 +45,10 @@ import maksim.booksservice.utils.validators.UpdateBookDtoValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -50,6 +56,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -62,6 +69,8 @@ import org.springframework.web.multipart.MultipartFile;
 public class BookController {
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
 
+    private static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
     private final BookService bookService;
     private final FileValidator fileValidator;
     private final StringValidator stringValidator;
@@ -69,6 +78,9 @@ public class BookController {
     private final UpdateBookDtoValidator updateBookDtoValidator;
     private final BookSearchCriteriaValidator bookSearchCriteriaValidator;
     private final CachingService cachingService;
+    private final BookFileSender bookFileSender;
+    private final BookUploadService bookUploadService;
+    private final BookPageService bookPageService;
 
     @Autowired
     public BookController(
@@ -78,7 +90,10 @@ public class BookController {
             CreateBookDtoValidator createBookDtoValidator,
             UpdateBookDtoValidator updateBookDtoValidator,
             BookSearchCriteriaValidator bookSearchCriteriaValidator,
-            CachingService cachingService
+            CachingService cachingService,
+            BookFileSender bookFileSender,
+            BookUploadService bookUploadService,
+            BookPageService bookPageService
     ) {
         this.bookService = bookService;
         this.fileValidator = fileValidator;
@@ -87,6 +102,9 @@ public class BookController {
         this.updateBookDtoValidator = updateBookDtoValidator;
         this.bookSearchCriteriaValidator = bookSearchCriteriaValidator;
         this.cachingService = cachingService;
+        this.bookFileSender = bookFileSender;
+        this.bookUploadService = bookUploadService;
+        this.bookPageService = bookPageService;
     }
 
 
@@ -186,11 +204,13 @@ public class BookController {
                    - sortDirection (type: String (values: asc/desc)) - sorting direction
                    - pageNum (type: int) - page number
                    - pageSize (type: int) - how many books should be on one page
+                   - continuationToken (type: String) - token from X-Continuation-Token header of previous page,
+                     next page is selected right after it (pageNum is ignored)
                 """,
             required = false
         )
         @RequestParam(required = false)
-        Map<String, String> params, HttpServletRequest request
+        Map<String, String> params
     ) {
         /*
         * QUERY PARAMS:
@@ -218,20 +238,11 @@ public class BookController {
         *   sortDirection - asc \ desc ; default "desc"
         *   pageNum - default 0
         *   pageSize - default 20
+        *   continuationToken - X-Continuation-Token of previous page, replaces pageNum
         * */
 
         logger.trace("BookController method entrance: getAllBooks");
 
-        String url = request.getMethod() + request.getRequestURL().toString();
-        String queryString = request.getQueryString();
-        if (queryString != null) {
-            url += "?" + queryString;
-        }
-
-        if (cachingService.contains(url)) {
-            return new ResponseEntity<>(cachingService.getFromCache(url), HttpStatus.OK);
-        }
-
         Pageable pageable = Pagination.getPageable(params);
         BookSearchCriteria criteria = new BookSearchCriteria(params);
 
@@ -240,13 +251,28 @@ public class BookController {
             throw new BadRequestException("Unsecured input params");
         }
 
-        List<BookDto> findBooks = bookService.getAllBooks(criteria, pageable);
+        String cacheKey = BookCacheKey.of(criteria, pageable);
+
+        List<BookDto> findBooks = cachingService.getFromCache(cacheKey);
+
+        if (findBooks == null) {
+            findBooks = bookService.getAllBooks(criteria, pageable);
+
+            cachingService.addToCache(cacheKey, findBooks, 200000);
+        }
 
         logger.trace("BookController method end | Return: selected items {}", findBooks.size());
 
-        cachingService.addToCache(url, findBooks, 200000);
+        HttpHeaders headers = new HttpHeaders();
 
-        return new ResponseEntity<>(findBooks, HttpStatus.OK);
+        if (!findBooks.isEmpty() && findBooks.size() == pageable.getPageSize()) {
+            headers.add(CONTINUATION_TOKEN_HEADER, BookContinuationToken.of(
+                findBooks.get(findBooks.size() - 1),
+                Pagination.getSortField(params)
+            ).encode());
+        }
+
+        return new ResponseEntity<>(findBooks, headers, HttpStatus.OK);
     }
 
 
@@ -325,6 +351,18 @@ public class BookController {
                     schema = @Schema(example = "Some .txt book")
                 )
             ),
+        @ApiResponse(
+                responseCode = "206",
+                description = "Requested byte range of book file (Range header)"
+            ),
+        @ApiResponse(
+                responseCode = "304",
+                description = "Book file is not modified (If-None-Match header matches ETag)"
+            ),
+        @ApiResponse(
+                responseCode = "416",
+                description = "Requested range is out of file"
+            ),
         @ApiResponse(
                 responseCode = "400",
                 description = "Book bad request (validation failed)",
@@ -350,33 +388,78 @@ public class BookController {
                 )
             )
     })
-    public ResponseEntity<Resource> getBookFile(
+    public void getBookFile(
         @Parameter(description = "book id", required = true, example = "16")
         @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
         @PathVariable
-        int id
-    ) {
+        int id,
+
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
         logger.trace("BookController method entrance: getFile | Params: book id {}", id);
 
-        File file = bookService.getFile(id);
+        BookFile file = bookService.getFile(id);
 
-        HttpHeaders headers = new HttpHeaders();
+        bookFileSender.send(file, request, response);
 
-        try {
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"");
-            headers.add(HttpHeaders.CONTENT_TYPE, Files.probeContentType(Paths.get(file.getPath())));
-        } catch (IOException e) {
-            logger.trace("Cannot get file path");
+        logger.trace("BookController method end: getFile | File has successfully found");
+    }
 
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
-        }
+    @GetMapping("/{id}/pages")
+    @Operation(
+        summary = "Get pages of book text",
+        description = "Get pages of txt/md book without downloading the whole file"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+                responseCode = "200",
+                description = "Book pages, empty when from is after the last page",
+                content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = BookPagesDto.class)
+                )
+            ),
+        @ApiResponse(
+                responseCode = "400",
+                description = "Book file isn't txt/md or params are invalid",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Paged reading is supported only for txt and md books")
+                )
+            ),
+        @ApiResponse(
+                responseCode = "404",
+                description = "Book or book file not found",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Book not found")
+                )
+            )
+    })
+    public ResponseEntity<BookPagesDto> getBookPages(
+        @Parameter(description = "book id", required = true, example = "16")
+        @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
+        @PathVariable
+        int id,
 
-        logger.trace("BookController method end: getFile | File has successfully found");
+        @Parameter(description = "Number of first page (from 0)", example = "0")
+        @Min(value = 0, message = "Page number should be greater than 0")
+        @RequestParam(value = "from", defaultValue = "0")
+        int from,
+
+        @Parameter(description = "Count of pages", example = "1")
+        @Min(value = 1, message = "Pages count should be greater than 0")
+        @RequestParam(value = "count", defaultValue = "1")
+        int count
+    ) {
+        logger.trace("BookController method entrance: getBookPages | Params: book id {} ; from {} ; count {}", id, from, count);
+
+        BookPagesDto pages = bookPageService.getPages(id, from, count);
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .contentLength(file.length())
-                .body(new FileSystemResource(file));
+        logger.trace("BookController method end: getBookPages | Found {} pages", pages.getPages().size());
+
+        return ResponseEntity.ok(pages);
     }
 
 
@@ -519,6 +602,238 @@ public class BookController {
     }
 
 
+    @PostMapping("/{id}/file/uploads")
+    @Operation(
+        summary = "Start chunked upload of book file",
+        description = "Create resumable upload session, file chunks are sent by PUT with offsets and assembled on complete"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+                responseCode = "201",
+                description = "Upload was created",
+                content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = UploadDto.class)
+                )
+            ),
+        @ApiResponse(
+                responseCode = "400",
+                description = "Book bad request (validation failed)",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Invalid file type/format")
+                )
+            ),
+        @ApiResponse(
+                responseCode = "500",
+                description = "Server error",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Something goes wrong, Sorry my bad :(")
+                )
+            )
+    })
+    public ResponseEntity<UploadDto> createBookFileUpload(
+        @Parameter(description = "book id", required = true, example = "16")
+        @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
+        @PathVariable
+        int id,
+
+        @Parameter(description = "Uploaded file metadata", required = true)
+        @Valid @RequestBody
+        CreateUploadDto uploadData
+    ) {
+        logger.trace("BookController method entrance: createBookFileUpload | Params: id {}", id);
+
+        if (!fileValidator.isValidUpload(uploadData)) {
+            throw new BadRequestException("Error: book file is not valid. File support extensions: pdf, txt, md. File should be less than 1gb");
+        }
+
+        UploadDto upload = bookUploadService.createUpload(id, uploadData);
+
+        logger.trace("BookController method end: createBookFileUpload | Upload {} was created", upload.getUploadId());
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .header(HttpHeaders.LOCATION, String.format("/api/v1/books/%d/file/uploads/%s", id, upload.getUploadId()))
+            .body(upload);
+    }
+
+    @GetMapping("/{id}/file/uploads/{uploadId}")
+    @Operation(
+        summary = "Get chunked upload state",
+        description = "Get received bytes count of upload, interrupted upload is resumed from this offset"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+                responseCode = "200",
+                description = "Upload state",
+                content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = UploadDto.class)
+                )
+            ),
+        @ApiResponse(
+                responseCode = "404",
+                description = "Upload not found",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Upload not found")
+                )
+            )
+    })
+    public ResponseEntity<UploadDto> getBookFileUpload(
+        @Parameter(description = "book id", required = true, example = "16")
+        @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
+        @PathVariable
+        int id,
+
+        @Parameter(description = "upload id", required = true)
+        @PathVariable
+        String uploadId
+    ) {
+        logger.trace("BookController method entrance: getBookFileUpload | Params: id {} ; upload id {}", id, uploadId);
+
+        return ResponseEntity.ok(bookUploadService.getUpload(id, uploadId));
+    }
+
+    @PutMapping(value = "/{id}/file/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(
+        summary = "Upload chunk of book file",
+        description = "Write raw chunk bytes from offset. Chunk can be resent from any already received offset"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+                responseCode = "200",
+                description = "Chunk was written",
+                content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = UploadDto.class)
+                )
+            ),
+        @ApiResponse(
+                responseCode = "400",
+                description = "Chunk is too big or connection was interrupted",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Cannot write upload chunk")
+                )
+            ),
+        @ApiResponse(
+                responseCode = "404",
+                description = "Upload not found",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Upload not found")
+                )
+            ),
+        @ApiResponse(
+                responseCode = "409",
+                description = "Offset is after received bytes or upload is being written by another request",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Chunk should start from offset 0, but starts from 100")
+                )
+            )
+    })
+    public ResponseEntity<UploadDto> uploadBookFileChunk(
+        @Parameter(description = "book id", required = true, example = "16")
+        @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
+        @PathVariable
+        int id,
+
+        @Parameter(description = "upload id", required = true)
+        @PathVariable
+        String uploadId,
+
+        @Parameter(description = "Position of chunk first byte in file", required = true, example = "0")
+        @Min(value = 0, message = "Offset should be greater than 0")
+        @RequestParam(value = "offset")
+        long offset,
+
+        HttpServletRequest request
+    ) throws IOException {
+        logger.trace("BookController method entrance: uploadBookFileChunk | Params: id {} ; upload id {} ; offset {}", id, uploadId, offset);
+
+        UploadDto upload = bookUploadService.writeChunk(id, uploadId, offset, request.getInputStream());
+
+        logger.trace("BookController method end: uploadBookFileChunk | Upload offset {}", upload.getOffset());
+
+        return ResponseEntity.ok(upload);
+    }
+
+    @PostMapping("/{id}/file/uploads/{uploadId}/complete")
+    @Operation(
+        summary = "Complete chunked upload",
+        description = "Assemble received chunks into book file"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+                responseCode = "200",
+                description = "Book file was added",
+                content = @Content(
+                    mediaType = "text/plain",
+                    schema = @Schema(example = "Book file was successfully added")
+                )
+            ),
+        @ApiResponse(
+                responseCode = "404",
+                description = "Upload not found",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Upload not found")
+                )
+            ),
+        @ApiResponse(
+                responseCode = "409",
+                description = "Not all bytes were received",
+                content = @Content(
+                    mediaType = "plain/text",
+                    schema = @Schema(example = "Upload is incomplete: received 100 of 200 bytes")
+                )
+            )
+    })
+    public ResponseEntity<String> completeBookFileUpload(
+        @Parameter(description = "book id", required = true, example = "16")
+        @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
+        @PathVariable
+        int id,
+
+        @Parameter(description = "upload id", required = true)
+        @PathVariable
+        String uploadId
+    ) {
+        logger.trace("BookController method entrance: completeBookFileUpload | Params: id {} ; upload id {}", id, uploadId);
+
+        bookUploadService.completeUpload(id, uploadId);
+
+        logger.trace("BookController method end: completeBookFileUpload | Book file was successfully added");
+
+        return ResponseEntity.ok("Book file was successfully added");
+    }
+
+    @DeleteMapping("/{id}/file/uploads/{uploadId}")
+    @Operation(
+        summary = "Cancel chunked upload",
+        description = "Delete upload and its received chunks"
+    )
+    public ResponseEntity<String> cancelBookFileUpload(
+        @Parameter(description = "book id", required = true, example = "16")
+        @NotNull(message = "Book id shouldn't be null") @Min(value = 0, message = "Book id should be greater than 0")
+        @PathVariable
+        int id,
+
+        @Parameter(description = "upload id", required = true)
+        @PathVariable
+        String uploadId
+    ) {
+        logger.trace("BookController method entrance: cancelBookFileUpload | Params: id {} ; upload id {}", id, uploadId);
+
+        bookUploadService.cancelUpload(id, uploadId);
+
+        return ResponseEntity.ok("Upload was cancelled");
+    }
+
+
     @PostMapping("/all")
     public ResponseEntity<String> addAllBooksFromList(
         @NotNull(message = "Author id shouldn't be null")
@@ -1,21 +1,29 @@
 package maksim.booksservice.controllers;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.exceptions.NotFoundException;
 import maksim.booksservice.services.LogsService;
+import maksim.booksservice.utils.bookutils.BookFileSender;
 import maksim.booksservice.utils.enums.LogRequestStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +34,8 @@ import org.springframework.web.bind.annotation.*;
 public class LogsController {
     private static final Logger logger = LoggerFactory.getLogger(LogsController.class);
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final LogsService logsService;
 
     @Autowired
@@ -72,8 +82,7 @@ public class LogsController {
             throw new BadRequestException("Min date should be before max date");
         }
 
-        String id = UUID.randomUUID().toString();
-        logsService.requestLogsFile(id, minDate, maxDate);
+        String id = logsService.requestLogsFile(minDate, maxDate);
 
         logger.trace("LogsController method end: requestLogs | File has successfully requested");
 
@@ -88,30 +97,67 @@ public class LogsController {
 
         LogRequestStatus status = logsService.getStatus(id);
 
+        if (status == null) {
+            throw new NotFoundException("Cannot find such request");
+        }
+
         logger.trace("LogsController method end: getStatus");
 
         return ResponseEntity.ok(status.toString());
     }
 
+    /*
+        Export is streamed from disk (gzipped on the fly when client accepts it) and deleted after it was sent,
+        so its size doesn't matter for the heap
+     */
     @GetMapping("/file/{id}")
-    public ResponseEntity<Resource> getLogFile(
-        @PathVariable(name = "id") String id
-    ) {
+    public void getLogFile(
+        @PathVariable(name = "id") String id,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
         logger.trace("LogsController method entrance: getLogFile");
 
-        ByteArrayOutputStream logBuffer = logsService.getLogsFromFile(id);
-        ByteArrayResource resource = new ByteArrayResource(logBuffer.toByteArray());
+        Path logsFile = logsService.takeLogsFile(id);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"logs_" + id + ".log\"");
-        headers.add(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE);
-        headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(logBuffer.size()));
+        try {
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"logs_" + id + ".log\"");
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+            if (BookFileSender.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                // Compressed size is unknown beforehand, response is chunked
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+                try (OutputStream out = new FastGzipOutputStream(response.getOutputStream())) {
+                    Files.copy(logsFile, out);
+                }
+            } else {
+                response.setContentLengthLong(Files.size(logsFile));
+
+                try (FileChannel in = FileChannel.open(logsFile, StandardOpenOption.READ)) {
+                    WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                    long position = 0;
+                    long size = in.size();
+
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        } finally {
+            logsService.releaseLogsFile(logsFile);
+        }
 
         logger.trace("LogsController method end: getLogFile");
+    }
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(resource);
+    // Logs are compressed well even on the fastest level, and export doesn't wait for the compressor
+    private static class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, GZIP_BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
     }
 
 }
@@ -0,0 +1,36 @@
+package maksim.booksservice.models.dtos.crud;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Schema(description = "Schema for starting chunked book file upload")
+public class CreateUploadDto {
+    @NotBlank(message = "File name is required")
+    @Size(max = 255, message = "File name should be less than 255 chars length")
+    @Schema(description = "Original file name, should be in next formats: .txt , .pdf , .md", example = "book.pdf")
+    private String fileName;
+
+    @NotBlank(message = "Content type is required")
+    @Schema(description = "File content type", example = "application/pdf")
+    private String contentType;
+
+    @NotNull(message = "File size is required")
+    @Min(value = 1, message = "File size should be greater than 0")
+    @Schema(description = "Whole file size in bytes", example = "314572800")
+    private Long size;
+
+    public CreateUploadDto(String fileName, String contentType, Long size) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    public CreateUploadDto() {}
+}
@@ -9,6 +9,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import maksim.booksservice.models.entities.Book;
+import maksim.booksservice.models.projections.BookRow;
 import maksim.booksservice.utils.enums.JoinMode;
 
 @Getter
@@ -89,6 +90,38 @@ public class BookDto {
         }
     }
 
+    public BookDto(BookRow row, JoinMode joinModeForAuthor, List<Map<String, String>> statuses) {
+        this.id = row.id();
+        this.name = row.name();
+        this.filePath = row.filePath();
+        this.rating = row.rating();
+        this.ratingsCount = row.ratingCount();
+        this.issuedDate = row.issuedDate();
+        this.genres = row.genres();
+        this.likes = row.likes();
+
+        if (joinModeForAuthor == JoinMode.WITH) {
+            this.author = new UserDto(row.authorId(), row.authorName(), row.authorProfilePicPath());
+        }
+
+        if (statuses != null) {
+            this.statuses = statuses;
+        }
+    }
+
+    public BookDto(BookDto other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.filePath = other.filePath;
+        this.rating = other.rating;
+        this.ratingsCount = other.ratingsCount;
+        this.issuedDate = other.issuedDate;
+        this.genres = other.genres;
+        this.likes = other.likes;
+        this.author = other.author;
+        this.statuses = other.statuses;
+    }
+
     public BookDto() {}
 
 }
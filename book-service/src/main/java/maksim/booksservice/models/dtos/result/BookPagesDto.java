@@ -0,0 +1,35 @@
+package maksim.booksservice.models.dtos.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@Schema(description = "Pages of txt/md book text")
+public class BookPagesDto {
+    @Schema(description = "Book id", example = "16")
+    private Integer bookId;
+
+    @Schema(description = "Number of first returned page (from 0)", example = "0")
+    private Integer from;
+
+    @Schema(description = "Count of pages in book", example = "320")
+    private Integer totalPages;
+
+    @Schema(description = "Pages text", example = "[ \"Chapter 1 ...\" ]")
+    private List<String> pages = new ArrayList<>();
+
+    public BookPagesDto(Integer bookId, Integer from, Integer totalPages, List<String> pages) {
+        this.bookId = bookId;
+        this.from = from;
+        this.totalPages = totalPages;
+        this.pages = pages;
+    }
+
+    public BookPagesDto() {}
+}
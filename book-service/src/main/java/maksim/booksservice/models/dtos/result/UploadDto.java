@@ -0,0 +1,37 @@
+package maksim.booksservice.models.dtos.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@Schema(description = "State of chunked book file upload")
+public class UploadDto {
+    @Schema(description = "Upload id", example = "2f1c3a4e-5b6d-4e7f-8a9b-0c1d2e3f4a5b")
+    private String uploadId;
+
+    @Schema(description = "Book id", example = "16")
+    private Integer bookId;
+
+    @Schema(description = "Original file name", example = "book.pdf")
+    private String fileName;
+
+    @Schema(description = "Whole file size in bytes", example = "314572800")
+    private Long size;
+
+    @Schema(description = "Count of received bytes, next chunk should start from this offset", example = "8388608")
+    private Long offset;
+
+    public UploadDto(String uploadId, Integer bookId, String fileName, Long size, Long offset) {
+        this.uploadId = uploadId;
+        this.bookId = bookId;
+        this.fileName = fileName;
+        this.size = size;
+        this.offset = offset;
+    }
+
+    public UploadDto() {}
+}
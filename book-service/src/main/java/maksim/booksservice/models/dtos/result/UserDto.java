@@ -28,5 +28,11 @@ public class UserDto {
         this.profilePicPath = user.getProfilePicPath();
     }
 
+    public UserDto(Integer id, String name, String profilePicPath) {
+        this.id = id;
+        this.name = name;
+        this.profilePicPath = profilePicPath;
+    }
+
     public UserDto() {}
 }
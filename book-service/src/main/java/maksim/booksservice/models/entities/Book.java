@@ -21,7 +21,7 @@ public class Book {
     private User author = null;
 
     @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
-    @JoinColumn(name = "book_id", referencedColumnName = "id")
+    @JoinColumn(name = "book_id", referencedColumnName = "id", insertable = false, updatable = false)
     private List<BookStatusLog> statusesLogs = null;
 
     @Id
@@ -35,6 +35,16 @@ public class Book {
     @Column(name = "file_path")
     private String filePath;
 
+    // File metadata is computed once at upload, downloads only read it
+    @Column(name = "file_content_type")
+    private String fileContentType;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "file_hash", length = 64)
+    private String fileHash;
+
     @Column(name = "rating", nullable = false)
     private float rating = 0;
 
@@ -0,0 +1,40 @@
+package maksim.booksservice.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDate;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@Entity
+@Table(
+    name = "books_statuses_counters",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"book_id", "status", "added_day"})
+)
+public class BookStatusCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private int id;
+
+    @Column(name = "book_id", nullable = false)
+    private int bookId;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "added_day", nullable = false)
+    private LocalDate addedDay;
+
+    @Column(name = "count", nullable = false)
+    private long count;
+}
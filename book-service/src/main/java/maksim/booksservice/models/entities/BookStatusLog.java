@@ -22,6 +22,9 @@ public class BookStatusLog {
     @Column(name = "id", nullable = false)
     private int id;
 
+    @Column(name = "book_id")
+    private Integer bookId;
+
     @Column(name = "user_id")
     private int userId;
 
@@ -0,0 +1,39 @@
+package maksim.booksservice.models.projections;
+
+import java.util.Date;
+import java.util.List;
+import maksim.booksservice.models.entities.Book;
+import maksim.booksservice.utils.enums.JoinMode;
+
+/*
+    Read-only row of books list, selected by jpql constructor expression.
+    Author columns are null when the author wasn't joined
+ */
+public record BookRow(
+    int id,
+    String name,
+    String filePath,
+    float rating,
+    int ratingCount,
+    Date issuedDate,
+    List<String> genres,
+    int likes,
+    Integer authorId,
+    String authorName,
+    String authorProfilePicPath
+) {
+    public BookRow(int id, String name, String filePath, float rating, int ratingCount, Date issuedDate, List<String> genres, int likes) {
+        this(id, name, filePath, rating, ratingCount, issuedDate, genres, likes, null, null, null);
+    }
+
+    public static BookRow of(Book book, JoinMode joinModeForAuthor) {
+        if (joinModeForAuthor != JoinMode.WITH || book.getAuthor() == null) {
+            return new BookRow(book.getId(), book.getName(), book.getFilePath(), book.getRating(),
+                book.getRatingCount(), book.getIssuedDate(), book.getGenres(), book.getLikes());
+        }
+
+        return new BookRow(book.getId(), book.getName(), book.getFilePath(), book.getRating(),
+            book.getRatingCount(), book.getIssuedDate(), book.getGenres(), book.getLikes(),
+            book.getAuthor().getId(), book.getAuthor().getName(), book.getAuthor().getProfilePicPath());
+    }
+}
@@ -1,27 +1,61 @@
 package maksim.booksservice.repositories;
 
+import jakarta.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import maksim.booksservice.models.entities.Book;
+import maksim.booksservice.models.projections.BookRow;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book> {
-    @Query("SELECT b FROM Book b JOIN FETCH b.author LEFT JOIN FETCH b.statusesLogs s WHERE b.id = :id")
-    Optional<Book> findByIdWithJoin(@Param("id") int id);
+public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
+    @Query("SELECT b FROM Book b JOIN FETCH b.author WHERE b.id = :id")
+    Optional<Book> findByIdWithAuthor(@Param("id") int id);
 
     @Query("SELECT b FROM Book b WHERE b.id = :id")
     Optional<Book> findByIdWithoutJoin(@Param("id") int id);
 
-    @Query(value = "SELECT b.* FROM books b JOIN users a ON b.author_id = a.id " +
-            " WHERE (:keyWords IS NULL OR (' ' || b.name || ' ' LIKE '% ' || :keyWords || '% %' " +
-            " OR ' ' || a.name || ' ' LIKE '% ' || :keyWords || '% %'))" +
-            " AND (:genres_len = 0 OR b.genres @> CAST(:genres AS VARCHAR[])) ",
+    @Query("SELECT new maksim.booksservice.models.projections.BookRow(" +
+            " b.id, b.name, b.filePath, b.rating, b.ratingCount, b.issuedDate, b.genres, b.likes) " +
+            " FROM Book b WHERE b.id IN :ids")
+    List<BookRow> findRowsByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT new maksim.booksservice.models.projections.BookRow(" +
+            " b.id, b.name, b.filePath, b.rating, b.ratingCount, b.issuedDate, b.genres, b.likes, " +
+            " a.id, a.name, a.profilePicPath) " +
+            " FROM Book b JOIN b.author a WHERE b.id IN :ids")
+    List<BookRow> findRowsWithAuthorByIds(@Param("ids") Collection<Integer> ids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.likes = b.likes + :delta WHERE b.id = :id")
+    int incrementLikes(@Param("id") int id, @Param("delta") int delta);
+
+    boolean existsByFilePath(String filePath);
+
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "SELECT b.id FROM books b " +
+            " WHERE (CAST(:query AS TEXT) IS NULL OR b.search_vector @@ to_tsquery('simple', :query)) " +
+            " AND (:genres_len = 0 OR b.genres @> CAST(:genres AS VARCHAR[])) " +
+            " ORDER BY ts_rank(b.search_vector, to_tsquery('simple', :query)) DESC",
+            nativeQuery = true)
+    List<Integer> searchBookIds(@Param("genres") String[] genres, @Param("genres_len") int genresLen, @Param("query") String query, Pageable pageable);
+
+    // search_vector isn't mapped, it is maintained only by this query and db/schema.sql
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE books b SET search_vector = to_tsvector('simple', COALESCE(b.name, '') || ' ' || " +
+            " COALESCE((SELECT u.name FROM users u WHERE u.id = b.author_id), '')) " +
+            " WHERE b.id IN :ids",
             nativeQuery = true)
-    List<Book> searchBooks(@Param("genres") String[] genres, @Param("genres_len") int genresLen, @Param("keyWords") String keyWords, Pageable pageable);
+    void refreshSearchVectors(@Param("ids") Collection<Integer> ids);
 
 
 }
@@ -0,0 +1,14 @@
+package maksim.booksservice.repositories;
+
+import java.util.List;
+import maksim.booksservice.models.entities.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface BookRepositoryCustom {
+    /*
+        First phase of books paging: only ids of the page are selected (with LIMIT/OFFSET
+        in sql and without count query), entities are loaded by these ids afterwards
+     */
+    List<Integer> findIds(Specification<Book> spec, Pageable pageable);
+}
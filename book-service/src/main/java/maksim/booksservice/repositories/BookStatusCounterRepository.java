@@ -0,0 +1,33 @@
+package maksim.booksservice.repositories;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import maksim.booksservice.models.entities.BookStatusCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface BookStatusCounterRepository extends JpaRepository<BookStatusCounter, Integer> {
+    interface StatusCount {
+        Integer getBookId();
+
+        String getStatus();
+
+        Long getCount();
+    }
+
+    @Query("SELECT c.bookId AS bookId, c.status AS status, SUM(c.count) AS count " +
+            " FROM BookStatusCounter c WHERE c.bookId = :bookId GROUP BY c.bookId, c.status")
+    List<StatusCount> countByBookId(@Param("bookId") int bookId);
+
+    @Query("SELECT c.bookId AS bookId, c.status AS status, SUM(c.count) AS count " +
+            " FROM BookStatusCounter c " +
+            " WHERE c.bookId IN :bookIds AND c.addedDay >= :minDay AND c.addedDay < :maxDay " +
+            " GROUP BY c.bookId, c.status")
+    List<StatusCount> countByBookIdsAndDays(
+        @Param("bookIds") Collection<Integer> bookIds,
+        @Param("minDay") LocalDate minDay,
+        @Param("maxDay") LocalDate maxDay
+    );
+}
@@ -0,0 +1,56 @@
+package maksim.booksservice.repositories;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import maksim.booksservice.models.entities.BookStatusLog;
+import maksim.booksservice.utils.enums.BookStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/*
+    Batch writes for statuses events, IDENTITY ids don't let hibernate batch inserts
+ */
+@Repository
+public class BookStatusJdbcRepository {
+    private static final String INSERT_LOG_SQL = "INSERT INTO books_statuses_logs (book_id, user_id, added_date, status) " +
+            " VALUES (?, ?, ?, ?)";
+
+    private static final String INCREMENT_COUNTER_SQL = "INSERT INTO books_statuses_counters (book_id, status, added_day, count) " +
+            " VALUES (?, ?, ?, ?) " +
+            " ON CONFLICT (book_id, status, added_day) " +
+            " DO UPDATE SET count = books_statuses_counters.count + EXCLUDED.count";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookStatusJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertLogs(List<BookStatusLog> logs) {
+        jdbcTemplate.batchUpdate(INSERT_LOG_SQL, logs, logs.size(), (statement, log) -> {
+            statement.setInt(1, log.getBookId());
+            statement.setInt(2, log.getUserId());
+            statement.setTimestamp(3, new Timestamp(log.getAddedDate().getTime()));
+            statement.setString(4, log.getStatus());
+        });
+    }
+
+    public void incrementCounters(LocalDate day, Map<Integer, Map<BookStatus, Long>> deltas) {
+        List<Object[]> rows = new ArrayList<>();
+
+        deltas.forEach((bookId, statuses) ->
+            statuses.forEach((status, delta) ->
+                rows.add(new Object[] {bookId, status.name(), Date.valueOf(day), delta})
+            )
+        );
+
+        jdbcTemplate.batchUpdate(INCREMENT_COUNTER_SQL, rows);
+    }
+
+}
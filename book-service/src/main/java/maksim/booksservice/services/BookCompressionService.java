@@ -0,0 +1,104 @@
+package maksim.booksservice.services;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/*
+    Builds precompressed gzip variant (<location>.gz) of text book files. It is done once per file
+    content with the best compression level, so serving compressed file costs nothing per request.
+    Downloads request variant of older files, so file which is being compressed or doesn't compress well is skipped
+ */
+@Service
+public class BookCompressionService {
+    private static final Logger logger = LoggerFactory.getLogger(BookCompressionService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final List<String> COMPRESSIBLE_EXTENSIONS = List.of("txt", "md");
+
+    // Variant which doesn't save at least 10% isn't worth Vary and second cache entry
+    private static final double MAX_COMPRESSION_RATIO = 0.9;
+
+    private final BookFileStorage bookFileStorage;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    private final Set<String> incompressible = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public BookCompressionService(BookFileStorage bookFileStorage) {
+        this.bookFileStorage = bookFileStorage;
+    }
+
+    public static boolean isCompressible(String location) {
+        return location != null
+            && COMPRESSIBLE_EXTENSIONS.contains(location.substring(location.lastIndexOf('.') + 1).toLowerCase());
+    }
+
+    @Async("compressionTaskExecutor")
+    public void compressAsync(String location) {
+        try {
+            compress(location);
+        } catch (IOException e) {
+            logger.warn("Cannot compress book file {}", location);
+        }
+    }
+
+    public boolean compress(String location) throws IOException {
+        logger.trace("BookCompressionService method entrance: compress | Params: location {}", location);
+
+        Path file = bookFileStorage.resolve(location);
+
+        if (Files.exists(bookFileStorage.resolveDerived(location, BookFileStorage.GZIP_SUFFIX))) {
+            return true;
+        }
+
+        if (incompressible.contains(location) || !inProgress.add(location)) {
+            return false;
+        }
+
+        Path tempFile = bookFileStorage.createTempFile();
+
+        try {
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE), BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(file, out);
+            }
+
+            long size = Files.size(file);
+            long compressedSize = Files.size(tempFile);
+
+            if (compressedSize > size * MAX_COMPRESSION_RATIO) {
+                logger.trace("BookCompressionService method return: compress | {} doesn't compress well", location);
+
+                incompressible.add(location);
+
+                return false;
+            }
+
+            bookFileStorage.publishDerived(tempFile, location, BookFileStorage.GZIP_SUFFIX);
+
+            logger.trace("BookCompressionService method return: compress | {} compressed {} -> {} bytes", location, size, compressedSize);
+
+            return true;
+        } finally {
+            inProgress.remove(location);
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+}
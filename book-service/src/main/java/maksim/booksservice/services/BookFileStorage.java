@@ -0,0 +1,273 @@
+package maksim.booksservice.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import maksim.booksservice.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/*
+    Content-addressed storage of book files. File is named by sha-256 of its content
+    (<first 2 hex chars>/<hash>.<extension>), so equal files are stored once.
+    Upload is written into tmp/ and renamed into place only when it's complete.
+    Derived files (page index, gzip variant) are stored as <location>.<suffix> and deleted with the file.
+    Reused file is touched, so file which was released while another upload reused it is kept
+ */
+@Service
+public class BookFileStorage {
+    private static final Logger logger = LoggerFactory.getLogger(BookFileStorage.class);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final Pattern STORED_LOCATION = Pattern.compile("([0-9a-f]{2})/\\1[0-9a-f]{62}\\.[^./]+");
+
+    // Files built from stored file and kept next to it (<location>.<suffix>), stored file name has no other dots
+    public static final String PAGE_INDEX_SUFFIX = "pages";
+    public static final String GZIP_SUFFIX = "gz";
+
+    private final AppConfig appConfig;
+
+    public record StoredFile(String location, long size, String hash) {}
+
+    @Autowired
+    public BookFileStorage(AppConfig appConfig) {
+        this.appConfig = appConfig;
+    }
+
+    public Path resolve(String location) {
+        return root().resolve(location);
+    }
+
+    public StoredFile store(InputStream inputStream, String extension) throws IOException {
+        Path tempDirectory = root().resolve(TEMP_DIRECTORY);
+        Files.createDirectories(tempDirectory);
+
+        Path tempFile = Files.createTempFile(tempDirectory, "upload-", ".part");
+
+        try {
+            MessageDigest digest = newDigest();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long size = 0;
+
+            try (ReadableByteChannel in = Channels.newChannel(inputStream);
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+
+                    // Hash is computed from the same buffer while it is written, file isn't read twice
+                    digest.update(buffer.duplicate());
+
+                    while (buffer.hasRemaining()) {
+                        size += out.write(buffer);
+                    }
+
+                    buffer.clear();
+                }
+
+                out.force(true);
+            }
+
+            return publish(tempFile, digest, size, extension);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /*
+        Stores already written file (assembled upload). File is hashed in place and renamed, so its content
+        isn't copied, only file from another file system is copied into tmp/ first (rename can't move it)
+     */
+    public StoredFile storeFile(Path file, String extension) throws IOException {
+        Path tempFile = null;
+
+        try {
+            MessageDigest digest = newDigest();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long size = 0;
+
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+
+            Files.createDirectories(root());
+
+            if (!Files.getFileStore(file).equals(Files.getFileStore(root()))) {
+                tempFile = createTempFile();
+                Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return publish(tempFile != null ? tempFile : file, digest, size, extension);
+        } finally {
+            Files.deleteIfExists(file);
+
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /*
+        File is moved out of its place before references are checked, so upload which didn't see it
+        anymore stores its own copy. Upload which reused it before has touched it, such file is put back
+        together with files modified after modifiedBefore and files which are still used
+     */
+    public boolean deleteIfUnused(String location, Predicate<String> isUsed, long modifiedBefore) throws IOException {
+        Path tempDirectory = root().resolve(TEMP_DIRECTORY);
+        Files.createDirectories(tempDirectory);
+
+        Path releasedFile = tempDirectory.resolve(resolve(location).getFileName() + ".released");
+
+        try {
+            Files.move(resolve(location), releasedFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        try {
+            if (Files.getLastModifiedTime(releasedFile).toMillis() >= modifiedBefore || isUsed.test(location)) {
+                moveIntoPlace(releasedFile, resolve(location));
+
+                return false;
+            }
+
+            deleteDerived(location);
+        } finally {
+            Files.deleteIfExists(releasedFile);
+        }
+
+        logger.trace("BookFileStorage method: deleteIfUnused | Deleted {}", location);
+
+        return true;
+    }
+
+    /*
+        Locations of all content-addressed files (<2 hex>/<sha-256>.<extension>). Derived and temp files,
+        files of older versions and anything else kept under the root (upload sessions) aren't included
+     */
+    public List<String> listLocations() throws IOException {
+        if (!Files.isDirectory(root())) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.walk(root(), 2)) {
+            return files
+                .filter(Files::isRegularFile)
+                .map(file -> root().relativize(file).toString().replace('\\', '/'))
+                .filter(location -> STORED_LOCATION.matcher(location).matches())
+                .toList();
+        }
+    }
+
+    public Path resolveDerived(String location, String suffix) {
+        return resolve(location + "." + suffix);
+    }
+
+    // Page index depends on pagination parameters, index built with other ones isn't used
+    public static String pageIndexSuffix(int linesPerPage, int maxPageBytes) {
+        return PAGE_INDEX_SUFFIX + "-" + linesPerPage + "-" + maxPageBytes;
+    }
+
+    public Path createTempFile() throws IOException {
+        Path tempDirectory = root().resolve(TEMP_DIRECTORY);
+        Files.createDirectories(tempDirectory);
+
+        return Files.createTempFile(tempDirectory, "derived-", ".part");
+    }
+
+    // Derived file depends only on file content (which is its name), so existing one is kept as well
+    public void publishDerived(Path tempFile, String location, String suffix) throws IOException {
+        try {
+            moveIntoPlace(tempFile, resolveDerived(location, suffix));
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Derived suffixes aren't fixed (page index has parameters in it), so all <location>.* files are deleted
+    private void deleteDerived(String location) throws IOException {
+        Path file = resolve(location);
+
+        if (!Files.isDirectory(file.getParent())) {
+            return;
+        }
+
+        try (DirectoryStream<Path> derivedFiles = Files.newDirectoryStream(file.getParent(), file.getFileName() + ".*")) {
+            for (Path derivedFile : derivedFiles) {
+                Files.deleteIfExists(derivedFile);
+            }
+        }
+    }
+
+    private StoredFile publish(Path file, MessageDigest digest, long size, String extension) throws IOException {
+        String hash = HexFormat.of().formatHex(digest.digest());
+        String location = hash.substring(0, 2) + "/" + hash + "." + extension;
+
+        moveIntoPlace(file, resolve(location));
+
+        logger.trace("BookFileStorage method: publish | Stored {} ({} bytes)", location, size);
+
+        return new StoredFile(location, size, hash);
+    }
+
+    // Existing file has the same content, so it is reused (and touched) instead of being overwritten
+    private static void moveIntoPlace(Path tempFile, Path target) throws IOException {
+        if (Files.exists(target)) {
+            try {
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+
+                return;
+            } catch (NoSuchFileException e) {
+                logger.trace("BookFileStorage method: moveIntoPlace | {} was released concurrently", target);
+            }
+        }
+
+        Files.createDirectories(target.getParent());
+
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            logger.trace("BookFileStorage method: moveIntoPlace | {} was stored concurrently", target);
+        }
+    }
+
+    private Path root() {
+        return Paths.get(appConfig.getBookFilesDirectory());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package maksim.booksservice.services;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.exceptions.NotFoundException;
+import maksim.booksservice.models.dtos.result.BookPagesDto;
+import maksim.booksservice.models.entities.Book;
+import maksim.booksservice.repositories.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/*
+    Paged reading of txt/md books. Page index (<location>.pages-<lines>-<bytes>) is array of longs: byte offset
+    of every page start and file size at the end, so page i is [index[i], index[i + 1]).
+    Index is built when file is uploaded (lazily for older files), reading maps only index
+    entries and bytes of requested pages, so it doesn't depend on book size
+ */
+@Service
+public class BookPageService {
+    private static final Logger logger = LoggerFactory.getLogger(BookPageService.class);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final List<String> PAGED_EXTENSIONS = List.of("txt", "md");
+
+    private final AppConfig appConfig;
+    private final BookRepository bookRepository;
+    private final BookFileStorage bookFileStorage;
+
+    @Autowired
+    public BookPageService(AppConfig appConfig, BookRepository bookRepository, BookFileStorage bookFileStorage) {
+        this.appConfig = appConfig;
+        this.bookRepository = bookRepository;
+        this.bookFileStorage = bookFileStorage;
+    }
+
+    public static boolean isPaged(String location) {
+        return location != null
+            && PAGED_EXTENSIONS.contains(location.substring(location.lastIndexOf('.') + 1).toLowerCase());
+    }
+
+    public BookPagesDto getPages(int bookId, int from, int count) {
+        logger.trace("BookPageService method entrance: getPages | Params: book id {} ; from {} ; count {}", bookId, from, count);
+
+        Optional<Book> book = bookRepository.findById(bookId);
+
+        if (book.isEmpty()) {
+            throw new NotFoundException("Book not found");
+        }
+
+        String location = book.get().getFilePath();
+
+        if (location == null) {
+            throw new NotFoundException("Book file not found");
+        }
+
+        if (!isPaged(location)) {
+            throw new BadRequestException("Paged reading is supported only for txt and md books");
+        }
+
+        try {
+            Path index = bookFileStorage.resolveDerived(location, pageIndexSuffix());
+
+            if (!Files.exists(index)) {
+                buildIndex(location);
+            }
+
+            List<String> pages = new ArrayList<>();
+            int totalPages;
+
+            try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ)) {
+                totalPages = (int) (indexChannel.size() / Long.BYTES) - 1;
+
+                int pagesCount = Math.min(Math.min(count, appConfig.getPagesMaxCount()), totalPages - from);
+
+                if (pagesCount > 0) {
+                    LongBuffer offsets = indexChannel
+                        .map(FileChannel.MapMode.READ_ONLY, (long) from * Long.BYTES, (long) (pagesCount + 1) * Long.BYTES)
+                        .asLongBuffer();
+
+                    readPages(location, offsets, pages);
+                }
+            }
+
+            logger.trace("BookPageService method return: getPages | Found {} pages of {}", pages.size(), totalPages);
+
+            return new BookPagesDto(bookId, from, totalPages, pages);
+        } catch (IOException e) {
+            throw new NotFoundException("Book file not found");
+        }
+    }
+
+    public void buildIndex(String location) throws IOException {
+        logger.trace("BookPageService method entrance: buildIndex | Params: location {}", location);
+
+        int linesPerPage = appConfig.getPageLines();
+        int maxPageBytes = appConfig.getPageMaxBytes();
+
+        Path tempFile = bookFileStorage.createTempFile();
+        int pagesCount = 0;
+
+        try (FileChannel in = FileChannel.open(bookFileStorage.resolve(location), StandardOpenOption.READ);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long position = 0;
+            long pageStart = 0;
+            int lines = 0;
+
+            out.writeLong(0);
+
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+
+                    // Too long page is split before a byte which starts utf-8 char, never inside of char
+                    if (position - pageStart >= maxPageBytes && (b & 0xC0) != 0x80) {
+                        out.writeLong(position);
+                        pagesCount++;
+                        pageStart = position;
+                        lines = 0;
+                    }
+
+                    position++;
+
+                    if (b == '\n' && ++lines == linesPerPage) {
+                        out.writeLong(position);
+                        pagesCount++;
+                        pageStart = position;
+                        lines = 0;
+                    }
+                }
+
+                buffer.clear();
+            }
+
+            if (position > pageStart) {
+                out.writeLong(position);
+                pagesCount++;
+            }
+        }
+
+        bookFileStorage.publishDerived(tempFile, location, BookFileStorage.pageIndexSuffix(linesPerPage, maxPageBytes));
+
+        logger.trace("BookPageService method return: buildIndex | Indexed {} pages", pagesCount);
+    }
+
+    private String pageIndexSuffix() {
+        return BookFileStorage.pageIndexSuffix(appConfig.getPageLines(), appConfig.getPageMaxBytes());
+    }
+
+    private void readPages(String location, LongBuffer offsets, List<String> pages) throws IOException {
+        long start = offsets.get(0);
+        long end = offsets.get(offsets.limit() - 1);
+
+        try (FileChannel channel = FileChannel.open(bookFileStorage.resolve(location), StandardOpenOption.READ)) {
+            MappedByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+            for (int i = 0; i < offsets.limit() - 1; i++) {
+                int pageStart = (int) (offsets.get(i) - start);
+                int pageEnd = (int) (offsets.get(i + 1) - start);
+
+                pages.add(StandardCharsets.UTF_8.decode(text.slice(pageStart, pageEnd - pageStart)).toString());
+            }
+        }
+    }
+
+}
@@ -1,24 +1,27 @@
 package maksim.booksservice.services;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
+
+import jakarta.persistence.criteria.JoinType;
 import maksim.booksservice.config.AppConfig;
 import maksim.booksservice.exceptions.BadRequestException;
 import maksim.booksservice.exceptions.ConflictException;
 import maksim.booksservice.exceptions.ForbiddenException;
 import maksim.booksservice.exceptions.NotFoundException;
-import maksim.booksservice.repositories.BookStatusLogRepository;
-import maksim.kafkaclient.dtos.CreateLikeKafkaDto;
+import maksim.booksservice.repositories.BookStatusCounterRepository;
+import maksim.booksservice.repositories.BookStatusJdbcRepository;
 import maksim.kafkaclient.dtos.CreateStatusKafkaDto;
-import maksim.kafkaclient.dtos.DeleteLikeKafkaDto;
 import maksim.kafkaclient.dtos.UpdateStatusKafkaDto;
 import maksim.booksservice.models.dtos.result.BookDto;
 import maksim.booksservice.models.dtos.crud.CreateBookDto;
@@ -26,9 +29,13 @@ import maksim.booksservice.models.dtos.crud.UpdateBookDto;
 import maksim.booksservice.models.entities.Book;
 import maksim.booksservice.models.entities.BookStatusLog;
 import maksim.booksservice.models.entities.User;
+import maksim.booksservice.models.projections.BookRow;
 import maksim.booksservice.repositories.BookRepository;
 import maksim.booksservice.repositories.UserRepository;
+import maksim.booksservice.utils.bookutils.BookContinuationToken;
+import maksim.booksservice.utils.bookutils.BookFile;
 import maksim.booksservice.utils.bookutils.BookSearchCriteria;
+import maksim.booksservice.utils.bookutils.BookSearchQuery;
 import maksim.booksservice.utils.bookutils.BookSpecification;
 import maksim.booksservice.utils.enums.BookStatus;
 import maksim.booksservice.utils.enums.JoinMode;
@@ -36,10 +43,18 @@ import org.apache.kafka.common.protocol.types.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -47,12 +62,18 @@ import org.springframework.web.multipart.MultipartFile;
 public class BookService {
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
     private final AppConfig appConfig;
     private final CachingService cachingService;
     private final RestTemplate restTemplate;
-    private final BookStatusLogRepository bookStatusLogRepository;
+    private final BookStatusJdbcRepository bookStatusJdbcRepository;
+    private final BookStatusCounterRepository bookStatusCounterRepository;
+    private final BookFileStorage bookFileStorage;
+    private final BookPageService bookPageService;
+    private final BookCompressionService bookCompressionService;
 
     @Autowired
     public BookService(
@@ -61,14 +82,22 @@ public class BookService {
         AppConfig appConfig,
         CachingService cachingService,
         RestTemplate restTemplate,
-        BookStatusLogRepository bookStatusLogRepository
+        BookStatusJdbcRepository bookStatusJdbcRepository,
+        BookStatusCounterRepository bookStatusCounterRepository,
+        BookFileStorage bookFileStorage,
+        BookPageService bookPageService,
+        BookCompressionService bookCompressionService
     ) {
         this.bookRepository = bookRepository;
         this.userRepository = userRepository;
         this.appConfig = appConfig;
         this.cachingService = cachingService;
         this.restTemplate = restTemplate;
-        this.bookStatusLogRepository = bookStatusLogRepository;
+        this.bookStatusJdbcRepository = bookStatusJdbcRepository;
+        this.bookStatusCounterRepository = bookStatusCounterRepository;
+        this.bookFileStorage = bookFileStorage;
+        this.bookPageService = bookPageService;
+        this.bookCompressionService = bookCompressionService;
     }
 
     private void saveBookOrThrow(Book book) {
@@ -79,28 +108,45 @@ public class BookService {
         }
     }
 
-    private void saveBookOrPrint(Book book) {
-        try {
-            bookRepository.save(book);
-        } catch (DataIntegrityViolationException ex) {
-            logger.trace("Conflict found with book save {}", ex.getMessage());
-        }
+    private static BookStatusLog newStatusLog(int bookId, int userId, String status, Date addedDate) {
+        BookStatusLog newLog = new BookStatusLog();
+        newLog.setBookId(bookId);
+        newLog.setAddedDate(addedDate);
+        newLog.setStatus(status);
+        newLog.setUserId(userId);
+
+        return newLog;
     }
 
-    private void saveBookStatusLogOrPrint(BookStatusLog bookStatusLog) {
-        try {
-            bookStatusLogRepository.save(bookStatusLog);
-        } catch (DataIntegrityViolationException ex) {
-            logger.trace("Conflict found with log save {}", ex.getMessage());
+    private static LocalDate toDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static Map<Integer, Map<BookStatus, Long>> groupStatusCounts(List<BookStatusCounterRepository.StatusCount> counts) {
+        Map<Integer, Map<BookStatus, Long>> result = new HashMap<>();
+
+        for (BookStatusCounterRepository.StatusCount statusCount : counts) {
+            result.computeIfAbsent(statusCount.getBookId(), id -> new EnumMap<>(BookStatus.class))
+                    .merge(BookStatus.fromValue(statusCount.getStatus()), statusCount.getCount(), Long::sum);
         }
+
+        return result;
     }
 
 
+    @Transactional(readOnly = true)
     public BookDto getById(int id, JoinMode joinMode) {
         logger.trace("BookService method entrance: getById | Params: id {} ; join mode {}", id, joinMode);
 
+        BookDto cachedBook = cachingService.getBookFromCache(id, joinMode);
+        if (cachedBook != null) {
+            logger.trace("BookService return: getById | Result is found in cache");
+
+            return cachedBook;
+        }
+
         Optional<Book> book = switch (joinMode) {
-            case WITH -> bookRepository.findByIdWithJoin(id);
+            case WITH -> bookRepository.findByIdWithAuthor(id);
             case WITHOUT -> bookRepository.findByIdWithoutJoin(id);
         };
 
@@ -116,42 +162,40 @@ public class BookService {
             final String statusName =  "status_name";
             final String count = "count";
 
+            Map<BookStatus, Long> counters = groupStatusCounts(bookStatusCounterRepository.countByBookId(id))
+                    .getOrDefault(id, Map.of());
+
             statuses = Arrays.asList(
                 new HashMap<>(Map.of(statusName, BookStatus.READ.toString(), count, "0")),
                 new HashMap<>(Map.of(statusName, BookStatus.READING.toString(), count, "0")),
                 new HashMap<>(Map.of(statusName, BookStatus.DROP.toString(), count, "0"))
             );
 
-            int readCounter = 0;
-            int readingCounter = 0;
-            int dropCounter = 0;
-
-            for (BookStatusLog log : book.get().getStatusesLogs()) {
-                switch (BookStatus.fromValue(log.getStatus())) {
-                    case READ -> readCounter++;
-                    case READING -> readingCounter++;
-                    case DROP -> dropCounter++;
-                }
-            }
-
-            statuses.get(0).put(count, String.valueOf(readCounter));
-            statuses.get(1).put(count, String.valueOf(readingCounter));
-            statuses.get(2).put(count, String.valueOf(dropCounter));
+            statuses.get(0).put(count, String.valueOf(counters.getOrDefault(BookStatus.READ, 0L)));
+            statuses.get(1).put(count, String.valueOf(counters.getOrDefault(BookStatus.READING, 0L)));
+            statuses.get(2).put(count, String.valueOf(counters.getOrDefault(BookStatus.DROP, 0L)));
         }
 
         logger.trace("BookService return: getAllBooks | Result is found");
 
-        return new BookDto(book.get(), joinMode, statuses);
+        BookDto bookDto = new BookDto(book.get(), joinMode, statuses);
+
+        cachingService.addBookToCache(id, joinMode, bookDto);
+
+        return bookDto;
     }
 
+    @Transactional(readOnly = true)
     public List<BookDto> getAllBooks(BookSearchCriteria criteria, Pageable pageable) {
         logger.trace("BookService method entrance: getAllBooks | Params: {} ; {}", criteria, pageable);
 
         BookSpecification spec = new BookSpecification(criteria);
 
-        List<Book> booksEntities = bookRepository.findAll(spec, pageable).toList();
+        List<BookRow> booksRows = (criteria.getContinuationToken() == null)
+                ? findBooksPage(spec, criteria.getJoinModeForAuthor(), pageable)
+                : scrollBooks(spec, criteria.getJoinModeForAuthor(), criteria.getContinuationToken(), pageable);
 
-        final List<BookDto> books = new ArrayList<>(booksEntities.size());
+        final List<BookDto> books = new ArrayList<>(booksRows.size());
 
         if (criteria.getJoinModeForStatuses() == JoinMode.WITH) {
             final String statusName =  "status_name";
@@ -159,23 +203,24 @@ public class BookService {
             final String maxDate = "max_date";
             final String count = "count";
 
-            booksEntities.forEach(book -> {
-                int readCounter = 0;
-                int readingCounter = 0;
-                int dropCounter = 0;
-
-                for (BookStatusLog log : book.getStatusesLogs()) {
-                    if (
-                        criteria.getStatusMinDate().before(log.getAddedDate())
-                        && criteria.getStatusMaxDate().after(log.getAddedDate())
-                    ) {
-                        switch (BookStatus.fromValue(log.getStatus())) {
-                            case READ -> readCounter++;
-                            case READING -> readingCounter++;
-                            case DROP -> dropCounter++;
-                        }
-                    }
-                }
+            /*
+                Statuses are counted by day buckets, so one grouped query per page is enough
+                instead of loading every status log of every book
+             */
+            Map<Integer, Map<BookStatus, Long>> counters = booksRows.isEmpty()
+                ? Map.of()
+                : groupStatusCounts(bookStatusCounterRepository.countByBookIdsAndDays(
+                    booksRows.stream().map(BookRow::id).toList(),
+                    toDay(criteria.getStatusMinDate()),
+                    toDay(criteria.getStatusMaxDate())
+                ));
+
+            booksRows.forEach(book -> {
+                Map<BookStatus, Long> bookCounters = counters.getOrDefault(book.id(), Map.of());
+
+                long readCounter = bookCounters.getOrDefault(BookStatus.READ, 0L);
+                long readingCounter = bookCounters.getOrDefault(BookStatus.READING, 0L);
+                long dropCounter = bookCounters.getOrDefault(BookStatus.DROP, 0L);
 
                 List<Map<String, String>> statuses = Arrays.asList(
                     new HashMap<>(Map.of(
@@ -205,7 +250,7 @@ public class BookService {
                 books.add(new BookDto(book, criteria.getJoinModeForAuthor(), new ArrayList<>(statuses)));
             });
         } else {
-            booksEntities.forEach(book ->
+            booksRows.forEach(book ->
                 books.add(new BookDto(book, criteria.getJoinModeForAuthor(), null))
             );
         }
@@ -215,38 +260,220 @@ public class BookService {
         return books;
     }
 
-    public File getFile(int bookId) {
+    /*
+        Two phase paging: page of ids is selected by sql with limit, then only these books
+        are loaded, so memory per request is bounded by page size
+     */
+    private List<BookRow> findBooksPage(BookSpecification spec, JoinMode joinModeForAuthor, Pageable pageable) {
+        return findBooksByIds(bookRepository.findIds(spec, pageable), joinModeForAuthor);
+    }
+
+    /*
+        Books lists are read as projections: only columns of dto are selected and nothing
+        is put into persistence context. Rows are returned in order of ids
+     */
+    private List<BookRow> findBooksByIds(List<Integer> ids, JoinMode joinModeForAuthor) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<BookRow> rows = (joinModeForAuthor == JoinMode.WITH)
+                ? bookRepository.findRowsWithAuthorByIds(ids)
+                : bookRepository.findRowsByIds(ids);
+
+        Map<Integer, BookRow> rowsById = new HashMap<>();
+        rows.forEach(row -> rowsById.put(row.id(), row));
+
+        return ids.stream()
+                .map(rowsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private List<BookRow> scrollBooks(BookSpecification spec, JoinMode joinModeForAuthor, BookContinuationToken token, Pageable pageable) {
+        Sort.Order firstOrder = pageable.getSort().iterator().next();
+
+        if (!token.getSortField().getProperty().equals(firstOrder.getProperty())) {
+            throw new BadRequestException("Continuation token doesn't match sort field");
+        }
+
+        // Scroll loads entities in one query, so author is fetched there instead of one query per book
+        Specification<Book> fetchSpec = (joinModeForAuthor == JoinMode.WITH)
+                ? spec.and((root, query, builder) -> {
+                    if (Book.class.equals(query.getResultType())) {
+                        root.fetch("author", JoinType.INNER);
+                    }
+
+                    return null;
+                })
+                : spec;
+
+        return bookRepository.findBy(fetchSpec, query -> query
+                .sortBy(pageable.getSort())
+                .limit(pageable.getPageSize())
+                .scroll(token.toScrollPosition())
+        ).map(book -> BookRow.of(book, joinModeForAuthor)).getContent();
+    }
+
+    public BookFile getFile(int bookId) {
         Optional<Book> book = bookRepository.findById(bookId);
 
         if (book.isEmpty() || book.get().getFilePath() == null) {
             throw new NotFoundException("Cannot find book");
         }
 
-        File file = new File(appConfig.getBookFilesDirectory() + book.get().getFilePath());
+        File file = bookFileStorage.resolve(book.get().getFilePath()).toFile();
 
         if (!file.exists()) {
             throw new NotFoundException("Cannot open book file" + file.getPath());
         }
 
-        return file;
+        // Files uploaded before metadata was stored get it on first download
+        if (book.get().getFileHash() == null || book.get().getFileSize() == null) {
+            try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+                MessageDigest digest = newFileDigest();
+                byte[] buffer = new byte[FILE_BUFFER_SIZE];
+                int read;
+
+                while ((read = inputStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+
+                book.get().setFileHash(HexFormat.of().formatHex(digest.digest()));
+                book.get().setFileSize(file.length());
+                book.get().setFileContentType(probeContentType(file.toPath(), null));
+            } catch (IOException e) {
+                throw new NotFoundException("Cannot open book file" + file.getPath());
+            }
+
+            saveBookOrThrow(book.get());
+        }
+
+        BookFile.Variant gzip = null;
+
+        if (BookCompressionService.isCompressible(book.get().getFilePath())) {
+            String gzipLocation = book.get().getFilePath() + "." + BookFileStorage.GZIP_SUFFIX;
+            Path gzipPath = bookFileStorage.resolveDerived(book.get().getFilePath(), BookFileStorage.GZIP_SUFFIX);
+
+            try {
+                if (Files.exists(gzipPath)) {
+                    gzip = new BookFile.Variant(gzipPath, gzipLocation, Files.size(gzipPath));
+                } else {
+                    // Files uploaded before compression get variant for next downloads
+                    bookCompressionService.compressAsync(book.get().getFilePath());
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot open gzip variant {}", gzipLocation);
+            } catch (TaskRejectedException e) {
+                logger.warn("Cannot schedule compression of {}", book.get().getFilePath());
+            }
+        }
+
+        return new BookFile(
+            file.toPath(),
+            book.get().getFilePath(),
+            downloadName(book.get()),
+            book.get().getFileContentType(),
+            book.get().getFileSize(),
+            book.get().getFileHash(),
+            gzip
+        );
+    }
+
+    // Stored file is named by content hash, downloads are named after the book
+    private static String downloadName(Book book) {
+        String location = book.getFilePath();
+        String extension = location.substring(location.lastIndexOf('.') + 1);
+        String name = (book.getName() == null)
+            ? ""
+            : book.getName().replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+
+        return (name.isEmpty() ? "book-" + book.getId() : name) + "." + extension;
+    }
+
+    private static MessageDigest newFileDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String probeContentType(Path path, String uploadedContentType) {
+        String contentType = null;
+
+        try {
+            contentType = Files.probeContentType(path);
+        } catch (IOException e) {
+            logger.warn("Cannot probe content type of {}", path);
+        }
+
+        if (contentType == null) {
+            contentType = uploadedContentType;
+        }
+
+        return (contentType != null) ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    /*
+        Stored files are shared by books with the same content, file is deleted with its last book.
+        File reused by upload which isn't saved yet is kept, deleteUnusedFiles deletes it later if it stays unused
+     */
+    private void releaseFile(String location) {
+        if (location == null) {
+            return;
+        }
+
+        try {
+            bookFileStorage.deleteIfUnused(location, bookRepository::existsByFilePath, reusedSince());
+        } catch (IOException e) {
+            logger.warn("Cannot delete file {}", location);
+        }
     }
 
+    @Scheduled(fixedRate = 3600000)
+    public void deleteUnusedFiles() {
+        logger.trace("BookService method: deleteUnusedFiles | STARTING CLEANING");
+
+        int deleted = 0;
+
+        try {
+            for (String location : bookFileStorage.listLocations()) {
+                if (!bookRepository.existsByFilePath(location)
+                        && bookFileStorage.deleteIfUnused(location, bookRepository::existsByFilePath, reusedSince())) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot clean book files directory");
+        }
+
+        logger.trace("BookService method: deleteUnusedFiles | END CLEANING | deleted {} files", deleted);
+    }
+
+    private long reusedSince() {
+        return System.currentTimeMillis() - appConfig.getBookFilesReleaseDelay();
+    }
+
+    @Transactional(readOnly = true)
     public List<BookDto> searchBooks(String keyWords, String genres, Pageable pageable) {
         String[] genresList = genres.split(",");
         int genresListLen = (genres.isEmpty()) ? 0 : genresList.length;
 
         logger.trace("BookService method entrance: searchBooks | {} - {}", genresList, genresListLen);
 
-        List<Book> booksEntities = bookRepository.searchBooks(
+        List<Integer> ids = bookRepository.searchBookIds(
             genresList,
             genresListLen,
-            (!Objects.equals(keyWords, "")) ? keyWords : null,
+            BookSearchQuery.toPrefixTsQuery(keyWords),
             pageable
         );
 
+        List<BookRow> booksRows = findBooksByIds(ids, JoinMode.WITH);
+
         logger.trace("BookService method end: searchBooks");
 
-        return booksEntities.stream()
+        return booksRows.stream()
                 .map(book -> new BookDto(book, JoinMode.WITH, null))
                 .collect(Collectors.toList());
     }
@@ -269,6 +496,7 @@ public class BookService {
         book.setGenres(bookData.getGenres());
 
         saveBookOrThrow(book);
+        bookRepository.refreshSearchVectors(List.of(book.getId()));
 
         logger.trace("BookService method end: addBookMetaData | Book metadata was created successfully");
 
@@ -297,43 +525,72 @@ public class BookService {
             throw new BadRequestException("Cannot find book with such id");
         }
 
-        String fileExtension = fileName.substring(fileName.lastIndexOf('.') + 1);
-        File targetFile = null;
+        String fileExtension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
 
-        try {
-            Path uploadPath = Paths.get(appConfig.getBookFilesDirectory());
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
+        BookFileStorage.StoredFile storedFile;
+
+        try (InputStream inputStream = file.getInputStream()) {
+            storedFile = bookFileStorage.store(inputStream, fileExtension);
+        } catch (IOException e) {
+            throw new BadRequestException("Cannot open file");
+        }
 
-            targetFile = new File(appConfig.getBookFilesDirectory() + bookId + "." + fileExtension);
-            try (InputStream inputStream = file.getInputStream();
-                 FileOutputStream outputStream = new FileOutputStream(targetFile)) {
+        attachStoredFile(book.get(), storedFile, file.getContentType());
 
-                int read;
-                byte[] bytes = new byte[1024];
+        logger.trace("BookService method return: addBookFile | File was added successfully");
+    }
 
-                while ((read = inputStream.read(bytes)) != -1) {
-                    outputStream.write(bytes, 0, read);
-                }
+    // Assembled chunked upload (see BookUploadService) becomes book file the same way as multipart one
+    public void attachBookFile(int bookId, BookFileStorage.StoredFile storedFile, String uploadedContentType) {
+        logger.trace("BookService method entrance: attachBookFile | Params: book id {} ; location {}", bookId, storedFile.location());
 
-                book.get().setFilePath(bookId + "." + fileExtension);
+        Optional<Book> book = bookRepository.findById(bookId);
 
-                saveBookOrThrow(book.get());
-            }
-        } catch (IOException e) {
-            if (targetFile != null && targetFile.exists()) {
-                try {
-                    Files.delete(targetFile.toPath());
-                } catch (Exception ex) {
-                    logger.warn("Cannot delete file");
-                }
+        if (book.isEmpty()) {
+            releaseFile(storedFile.location());
+
+            throw new BadRequestException("Cannot find book with such id");
+        }
+
+        attachStoredFile(book.get(), storedFile, uploadedContentType);
+
+        logger.trace("BookService method return: attachBookFile | File was attached successfully");
+    }
+
+    private void attachStoredFile(Book book, BookFileStorage.StoredFile storedFile, String uploadedContentType) {
+        String previousLocation = book.getFilePath();
+
+        book.setFilePath(storedFile.location());
+        book.setFileSize(storedFile.size());
+        book.setFileHash(storedFile.hash());
+        book.setFileContentType(
+            probeContentType(bookFileStorage.resolve(storedFile.location()), uploadedContentType)
+        );
+
+        if (BookPageService.isPaged(storedFile.location())) {
+            try {
+                bookPageService.buildIndex(storedFile.location());
+            } catch (IOException e) {
+                // Index is built again on first pages request
+                logger.warn("Cannot build page index of {}", storedFile.location());
             }
+        }
 
-            throw new BadRequestException("Cannot open file");
+        saveBookOrThrow(book);
+        cachingService.invalidateBook(book.getId());
+
+        if (BookCompressionService.isCompressible(storedFile.location())) {
+            try {
+                bookCompressionService.compressAsync(storedFile.location());
+            } catch (TaskRejectedException e) {
+                // File is served uncompressed until the variant exists
+                logger.warn("Cannot schedule compression of {}", storedFile.location());
+            }
         }
 
-        logger.trace("BookService method return: addBookFile | File was added successfully");
+        if (!storedFile.location().equals(previousLocation)) {
+            releaseFile(previousLocation);
+        }
     }
 
 
@@ -346,19 +603,12 @@ public class BookService {
             throw new NotFoundException("Cannot access book with such id");
         }
 
-        File file = new File(appConfig.getBookFilesDirectory() + book.get().getFilePath());
-        if (file.exists()) {
-            try {
-                Files.deleteIfExists(file.toPath());
-            } catch (Exception e) {
-                logger.warn("Cannot delete file {}", file.getPath());
-            }
-        }
-
         cachingService.deleteBook(book.get().getId());
 
         bookRepository.delete(book.get());
 
+        releaseFile(book.get().getFilePath());
+
         logger.trace("BookService method return: deleteBook");
     }
 
@@ -388,6 +638,11 @@ public class BookService {
 
         if (isSmthChanged) {
             saveBookOrThrow(book.get());
+
+            if (bookDto.getName() != null) {
+                bookRepository.refreshSearchVectors(List.of(bookId));
+            }
+
             cachingService.updateBook(bookId, new BookDto(book.get(), null, null));
         }
 
@@ -432,100 +687,111 @@ public class BookService {
         });
 
         bookRepository.saveAll(booksEntities);
+        bookRepository.refreshSearchVectors(booksEntities.stream().map(Book::getId).toList());
 
         logger.trace("BookService method end: addListOfBooks");
     }
 
 
-    public void addLike(CreateLikeKafkaDto likeDto) {
-        logger.trace("BookService method entrance: addLike");
-
-        Optional<Book> book = bookRepository.findByIdWithJoin(likeDto.getBookId());
+    @Transactional
+    public void applyLikesDeltas(Map<Integer, Integer> likesDeltas) {
+        logger.trace("BookService method entrance: applyLikesDeltas | Books {}", likesDeltas.size());
 
-        if (book.isEmpty()) {
-            throw new NotFoundException("Cannot find book with such id");
-        }
+        // Fixed update order, so concurrent batches can't deadlock on books rows
+        new TreeMap<>(likesDeltas).forEach((bookId, delta) -> {
+            if (delta == 0) {
+                return;
+            }
 
-        book.get().setLikes(
-            book.get().getLikes() + 1
-        );
+            if (bookRepository.incrementLikes(bookId, delta) == 0) {
+                logger.trace("BookService method: applyLikesDeltas | Cannot find book with id {}", bookId);
+            }
+        });
 
-        saveBookOrPrint(book.get());
+        invalidateBooksAfterCommit(likesDeltas.keySet());
 
-        logger.trace("BookService method end: addLike | Like added successfully");
+        logger.trace("BookService method end: applyLikesDeltas | Likes applied successfully");
     }
 
-    public void deleteLike(DeleteLikeKafkaDto likeDto) {
-        logger.trace("BookService method entrance: deleteLike");
 
-        Optional<Book> book = bookRepository.findByIdWithJoin(likeDto.getBookId());
+    @Transactional
+    public void addStatuses(List<CreateStatusKafkaDto> createdStatuses, List<UpdateStatusKafkaDto> updatedStatuses) {
+        logger.trace("BookService method entrance: addStatuses | Created {} ; updated {}", createdStatuses.size(), updatedStatuses.size());
 
-        if (book.isEmpty()) {
-            throw new NotFoundException("Cannot find book with such id");
-        }
+        Date addedDate = new Date();
+        List<BookStatusLog> logs = new ArrayList<>(createdStatuses.size() + updatedStatuses.size());
 
-        book.get().setLikes(
-            book.get().getLikes() - 1
+        createdStatuses.forEach(statusDto ->
+            logs.add(newStatusLog(statusDto.getBookId(), statusDto.getUserId(), statusDto.getStatus(), addedDate))
+        );
+        updatedStatuses.forEach(statusDto ->
+            logs.add(newStatusLog(statusDto.getBookId(), statusDto.getUserId(), statusDto.getNewStatus(), addedDate))
         );
-
-        saveBookOrPrint(book.get());
-
-        logger.trace("BookService method end: deleteLike | Like deleted successfully");
-    }
-
-
-    public void createStatus(CreateStatusKafkaDto statusDto) {
-        logger.trace("BookService method entrance: createStatus | {} {}", statusDto.getBookId(), statusDto.getStatus());
-
-        Optional<Book> book = bookRepository.findByIdWithJoin(statusDto.getBookId());
-
-        if (book.isEmpty()) {
-            throw new NotFoundException("Cannot find book with such id");
-        }
 
         /*
             ADD USER EXISTENCE CHECK
          */
 
-        BookStatusLog newLog = new BookStatusLog();
-        newLog.setAddedDate(new Date());
-        newLog.setStatus(statusDto.getStatus());
-        newLog.setUserId(statusDto.getUserId());
-
-        saveBookStatusLogOrPrint(newLog);
-
-        book.get().getStatusesLogs().add(newLog);
+        Set<Integer> existingBooks = new HashSet<>(bookRepository.findExistingIds(
+            logs.stream().map(BookStatusLog::getBookId).collect(Collectors.toSet())
+        ));
 
-        saveBookOrPrint(book.get());
+        // One bad event shouldn't block the whole batch, so it is skipped instead of thrown
+        Map<Integer, Map<BookStatus, Long>> countersDeltas = new HashMap<>();
+        List<BookStatusLog> validLogs = new ArrayList<>(logs.size());
 
-        logger.trace("BookService method end: createStatus | Status added successfully");
-    }
+        for (BookStatusLog log : logs) {
+            BookStatus status = parseStatusOrNull(log.getStatus());
 
-    public void updateStatus(UpdateStatusKafkaDto statusDto) {
-        logger.trace("BookService method entrance: updateStatus");
+            if (status == null || !existingBooks.contains(log.getBookId())) {
+                logger.trace("BookService method: addStatuses | Skip status {} for book {}", log.getStatus(), log.getBookId());
+                continue;
+            }
 
-        Optional<Book> book = bookRepository.findByIdWithJoin(statusDto.getBookId());
+            validLogs.add(log);
+            countersDeltas.computeIfAbsent(log.getBookId(), id -> new EnumMap<>(BookStatus.class))
+                    .merge(status, 1L, Long::sum);
+        }
 
-        if (book.isEmpty()) {
-            throw new NotFoundException("Cannot find book with such id");
+        if (validLogs.isEmpty()) {
+            logger.trace("BookService method end: addStatuses | Nothing to add");
+            return;
         }
 
-        /*
-            ADD USER EXISTENCE CHECK
-         */
+        bookStatusJdbcRepository.insertLogs(validLogs);
+        bookStatusJdbcRepository.incrementCounters(toDay(addedDate), new TreeMap<>(countersDeltas));
 
-        BookStatusLog newLog = new BookStatusLog();
-        newLog.setAddedDate(new Date());
-        newLog.setStatus(statusDto.getNewStatus());
-        newLog.setUserId(statusDto.getUserId());
+        invalidateBooksAfterCommit(countersDeltas.keySet());
 
-        saveBookStatusLogOrPrint(newLog);
+        logger.trace("BookService method end: addStatuses | Statuses added {}", validLogs.size());
+    }
 
-        book.get().getStatusesLogs().add(newLog);
+    /*
+        Cached books are dropped after commit: dropped inside the transaction, they could be cached again
+        by a concurrent getById from the row before commit and live with old counters for the whole ttl
+     */
+    private void invalidateBooksAfterCommit(Collection<Integer> bookIds) {
+        Set<Integer> ids = Set.copyOf(bookIds);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(cachingService::invalidateBook);
+            return;
+        }
 
-        saveBookOrPrint(book.get());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(cachingService::invalidateBook);
+            }
+        });
+    }
 
-        logger.trace("BookService method end: updateStatus | Status updated successfully");
+    private static BookStatus parseStatusOrNull(String status) {
+        try {
+            return BookStatus.fromValue(status);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
     }
 
 
@@ -0,0 +1,328 @@
+package maksim.booksservice.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.exceptions.ConflictException;
+import maksim.booksservice.exceptions.NotFoundException;
+import maksim.booksservice.models.dtos.crud.CreateUploadDto;
+import maksim.booksservice.models.dtos.result.UploadDto;
+import maksim.booksservice.repositories.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/*
+    Resumable chunked uploads of book files. Upload is two files in uploads directory (outside of book files one):
+    <id>.properties (book, name, content type and size) and <id>.part (received bytes).
+    Chunks are written with positional writes, so they can be retried and resent from any
+    already received offset, and the part file length is the upload offset
+ */
+@Service
+public class BookUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(BookUploadService.class);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final AppConfig appConfig;
+    private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final BookFileStorage bookFileStorage;
+
+    private record UploadSession(int bookId, String fileName, String contentType, long size) {
+        String extension() {
+            return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+        }
+    }
+
+    @Autowired
+    public BookUploadService(
+            AppConfig appConfig,
+            BookRepository bookRepository,
+            BookService bookService,
+            BookFileStorage bookFileStorage
+    ) {
+        this.appConfig = appConfig;
+        this.bookRepository = bookRepository;
+        this.bookService = bookService;
+        this.bookFileStorage = bookFileStorage;
+    }
+
+    public UploadDto createUpload(int bookId, CreateUploadDto uploadData) {
+        logger.trace("BookUploadService method entrance: createUpload | Params: book id {} ; size {}", bookId, uploadData.getSize());
+
+        if (!bookRepository.existsById(bookId)) {
+            throw new BadRequestException("Cannot find book with such id");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        UploadSession session = new UploadSession(bookId, uploadData.getFileName(), uploadData.getContentType(), uploadData.getSize());
+
+        try {
+            Files.createDirectories(uploadsDirectory());
+            Files.createFile(partFile(uploadId));
+
+            Properties properties = new Properties();
+            properties.setProperty("bookId", String.valueOf(session.bookId()));
+            properties.setProperty("fileName", session.fileName());
+            properties.setProperty("contentType", session.contentType());
+            properties.setProperty("size", String.valueOf(session.size()));
+
+            try (Writer writer = Files.newBufferedWriter(sessionFile(uploadId), StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Cannot create upload");
+        }
+
+        logger.trace("BookUploadService method return: createUpload | Upload {} was created", uploadId);
+
+        return toDto(uploadId, session, 0);
+    }
+
+    public UploadDto getUpload(int bookId, String uploadId) {
+        logger.trace("BookUploadService method entrance: getUpload | Params: book id {} ; upload id {}", bookId, uploadId);
+
+        String id = normalizeId(uploadId);
+        UploadSession session = loadSession(bookId, id);
+
+        try {
+            return toDto(id, session, Files.size(partFile(id)));
+        } catch (IOException e) {
+            throw new NotFoundException("Upload not found");
+        }
+    }
+
+    public UploadDto writeChunk(int bookId, String uploadId, long offset, InputStream chunk) {
+        logger.trace("BookUploadService method entrance: writeChunk | Params: upload id {} ; offset {}", uploadId, offset);
+
+        String id = normalizeId(uploadId);
+        UploadSession session = loadSession(bookId, id);
+
+        try (FileChannel out = FileChannel.open(partFile(id), StandardOpenOption.WRITE);
+             FileLock lock = lockUpload(out)) {
+
+            // Upload could be completed while this chunk was waiting for the lock
+            if (!Files.exists(sessionFile(id))) {
+                throw new NotFoundException("Upload not found");
+            }
+
+            long received = out.size();
+
+            if (offset < 0 || offset > received) {
+                throw new ConflictException(String.format("Chunk should start from offset %d, but starts from %d", received, offset));
+            }
+
+            long limit = Math.min(session.size(), offset + appConfig.getUploadMaxChunkSize());
+            long position = offset;
+
+            ReadableByteChannel in = Channels.newChannel(chunk);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            try {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+
+                    if (position + buffer.remaining() > limit) {
+                        throw new BadRequestException(
+                            String.format("Chunk is bigger than max chunk size (%d bytes) or the rest of file", appConfig.getUploadMaxChunkSize())
+                        );
+                    }
+
+                    while (buffer.hasRemaining()) {
+                        position += out.write(buffer, position);
+                    }
+
+                    buffer.clear();
+                }
+            } finally {
+                // Bytes received before a dropped connection are kept, client resumes from them
+                out.force(false);
+            }
+
+            logger.trace("BookUploadService method return: writeChunk | Upload {} received {} bytes", id, position - offset);
+
+            return toDto(id, session, Math.max(received, position));
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException("Upload not found");
+        } catch (IOException e) {
+            throw new BadRequestException("Cannot write upload chunk");
+        }
+    }
+
+    public void completeUpload(int bookId, String uploadId) {
+        logger.trace("BookUploadService method entrance: completeUpload | Params: book id {} ; upload id {}", bookId, uploadId);
+
+        String id = normalizeId(uploadId);
+        UploadSession session = loadSession(bookId, id);
+
+        BookFileStorage.StoredFile storedFile;
+
+        try (FileChannel channel = FileChannel.open(partFile(id), StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = lockUpload(channel)) {
+
+            if (!Files.exists(sessionFile(id))) {
+                throw new NotFoundException("Upload not found");
+            }
+
+            if (channel.size() != session.size()) {
+                throw new ConflictException(String.format("Upload is incomplete: received %d of %d bytes", channel.size(), session.size()));
+            }
+
+            channel.force(true);
+
+            // Session is closed before the part file is moved, so late chunks can't write into stored file
+            Files.delete(sessionFile(id));
+
+            storedFile = bookFileStorage.storeFile(partFile(id), session.extension());
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException("Upload not found");
+        } catch (IOException e) {
+            throw new BadRequestException("Cannot assemble uploaded file");
+        }
+
+        bookService.attachBookFile(bookId, storedFile, session.contentType());
+
+        logger.trace("BookUploadService method return: completeUpload | Upload {} stored as {}", id, storedFile.location());
+    }
+
+    public void cancelUpload(int bookId, String uploadId) {
+        logger.trace("BookUploadService method entrance: cancelUpload | Params: book id {} ; upload id {}", bookId, uploadId);
+
+        String id = normalizeId(uploadId);
+        loadSession(bookId, id);
+
+        deleteUpload(id);
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void deleteExpiredUploads() {
+        logger.trace("BookUploadService method: deleteExpiredUploads | STARTING CLEANING");
+
+        if (!Files.isDirectory(uploadsDirectory())) {
+            return;
+        }
+
+        long expirationTime = System.currentTimeMillis() - appConfig.getUploadExpirationTime();
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.list(uploadsDirectory())) {
+            files = stream.toList();
+        } catch (IOException e) {
+            logger.warn("Cannot list uploads directory");
+
+            return;
+        }
+
+        int deleted = 0;
+
+        for (Path file : files) {
+            try {
+                // Part file is touched by every chunk, session file only when upload is created
+                if (file.getFileName().toString().endsWith(".part")
+                        && Files.getLastModifiedTime(file).toMillis() < expirationTime) {
+                    deleteUpload(file.getFileName().toString().replace(".part", ""));
+                    deleted++;
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot check upload file {}", file);
+            }
+        }
+
+        logger.trace("BookUploadService method: deleteExpiredUploads | END CLEANING | deleted {} uploads", deleted);
+    }
+
+    private UploadSession loadSession(int bookId, String uploadId) {
+        Properties properties = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(sessionFile(uploadId), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new NotFoundException("Upload not found");
+        }
+
+        UploadSession session = new UploadSession(
+            Integer.parseInt(properties.getProperty("bookId")),
+            properties.getProperty("fileName"),
+            properties.getProperty("contentType"),
+            Long.parseLong(properties.getProperty("size"))
+        );
+
+        if (session.bookId() != bookId) {
+            throw new NotFoundException("Upload not found");
+        }
+
+        return session;
+    }
+
+    private void deleteUpload(String uploadId) {
+        try {
+            Files.deleteIfExists(sessionFile(uploadId));
+            Files.deleteIfExists(partFile(uploadId));
+        } catch (IOException e) {
+            logger.warn("Cannot delete upload {}", uploadId);
+        }
+    }
+
+    // File lock works across book-service instances sharing uploads directory, overlapping lock is thrown inside one jvm
+    private static FileLock lockUpload(FileChannel channel) throws IOException {
+        try {
+            FileLock lock = channel.tryLock();
+
+            if (lock != null) {
+                return lock;
+            }
+        } catch (OverlappingFileLockException e) {
+            logger.trace("BookUploadService method: lockUpload | Upload is locked by this instance");
+        }
+
+        throw new ConflictException("Upload is being written by another request");
+    }
+
+    // Upload id becomes a file name, so only canonical uuid is accepted
+    private static String normalizeId(String uploadId) {
+        try {
+            return UUID.fromString(uploadId).toString();
+        } catch (IllegalArgumentException e) {
+            throw new NotFoundException("Upload not found");
+        }
+    }
+
+    private static UploadDto toDto(String uploadId, UploadSession session, long offset) {
+        return new UploadDto(uploadId, session.bookId(), session.fileName(), session.size(), offset);
+    }
+
+    private Path uploadsDirectory() {
+        return Paths.get(appConfig.getUploadsDirectory());
+    }
+
+    private Path sessionFile(String uploadId) {
+        return uploadsDirectory().resolve(uploadId + ".properties");
+    }
+
+    private Path partFile(String uploadId) {
+        return uploadsDirectory().resolve(uploadId + ".part");
+    }
+
+}
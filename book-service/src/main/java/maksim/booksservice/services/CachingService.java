@@ -1,16 +1,27 @@
 package maksim.booksservice.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import maksim.booksservice.config.AppConfig;
 import maksim.booksservice.models.dtos.result.BookDto;
 import maksim.booksservice.utils.CacheObject;
+import maksim.booksservice.utils.enums.JoinMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -18,94 +29,206 @@ import org.springframework.stereotype.Service;
 public class CachingService {
     private static final Logger logger = LoggerFactory.getLogger(CachingService.class);
 
-    private static final int STORAGE_MAX_SIZE = 10;
+    /*
+        Rough per-object sizes (in bytes) used to weigh cache entries,
+        exact numbers are not important, only the order of magnitude
+     */
+    private static final long LIST_OVERHEAD = 64;
+    private static final long BOOK_DTO_OVERHEAD = 128;
+    private static final long STRING_OVERHEAD = 40;
+    private static final long STATUS_MAP_OVERHEAD = 256;
+
+    private final Cache<String, CacheObject<List<BookDto>>> storage;
+    private final Cache<BookKey, BookDto> booksStorage;
+
+    // book id -> urls of cached lists which (may) contain this book
+    private final Map<Integer, Set<String>> bookIndex = new ConcurrentHashMap<>();
+
+    private record BookKey(int id, JoinMode joinMode) {}
+
+    @Autowired
+    public CachingService(AppConfig appConfig, MeterRegistry meterRegistry) {
+        long maxEntries = appConfig.getCacheMaxEntries();
+        long maxBytes = appConfig.getCacheMaxBytes();
+
+        // Every entry weighs at least maxBytes / maxEntries, so the weight limit bounds entries count too
+        long minEntryWeight = Math.max(1L, maxBytes / maxEntries);
+
+        this.storage = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String url, CacheObject<List<BookDto>> value) ->
+                    (int) Math.min(Integer.MAX_VALUE, Math.max(minEntryWeight, estimateSize(url, value.getValue())))
+                )
+                .expireAfter(new Expiry<String, CacheObject<List<BookDto>>>() {
+                    @Override
+                    public long expireAfterCreate(String url, CacheObject<List<BookDto>> value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(value.getExpirationTime());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String url, CacheObject<List<BookDto>> value, long currentTime, long currentDuration) {
+                        // Updates are book patches, they shouldn't prolong the entry's life
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String url, CacheObject<List<BookDto>> value, long currentTime, long currentDuration) {
+                        return TimeUnit.MILLISECONDS.toNanos(value.getExpirationTime());
+                    }
+                })
+                .removalListener((String url, CacheObject<List<BookDto>> value, RemovalCause cause) -> {
+                    // Replaced entries are reindexed by the compute which replaced them
+                    if (cause != RemovalCause.REPLACED) {
+                        removeFromIndex(url, value);
+                    }
+                })
+                .recordStats()
+                .build();
+
+        this.booksStorage = Caffeine.newBuilder()
+                .maximumSize(appConfig.getCacheBookMaxEntries())
+                .expireAfterWrite(appConfig.getCacheBookExpirationTime(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, storage, "books-query-cache");
+        CaffeineCacheMetrics.monitor(meterRegistry, booksStorage, "books-by-id-cache");
+    }
+
+    public void invalidateCache(String url) {
+        storage.invalidate(url);
+    }
 
-    private final Map<String, CacheObject<List<BookDto>>> storage = new ConcurrentHashMap<>();
-    private final List<String> history = new LinkedList<>();
-    private int storageSize = 0;
+    public List<BookDto> getFromCache(String url) {
+        logger.trace("Caching service method: getFromCache | Get values from cache");
 
-    synchronized public void invalidateCache(String url) {
-        storage.remove(url);
-        history.remove(url);
+        CacheObject<List<BookDto>> cacheObject = storage.getIfPresent(url);
 
-        storageSize--;
+        return (cacheObject != null) ? cacheObject.getValue() : null;
     }
 
-    synchronized public List<BookDto> getFromCache(String url) {
-        storage.get(url).setCreationDate(new Date());
+    public boolean contains(String url) {
+        return storage.asMap().containsKey(url);
+    }
 
-        logger.trace("Caching service method: getFromCache | Get values from cache");
+    public void addToCache(String url, List<BookDto> dtos, long expirationTime) {
+        logger.trace("Caching service method: addToCache | Add value to cache");
 
-        return storage.get(url).getValue();
+        List<BookDto> snapshot = List.copyOf(dtos);
+        CacheObject<List<BookDto>> cacheObject = new CacheObject<>(snapshot, new Date(), expirationTime);
+
+        // Index is changed together with the entry: books of the replaced list which aren't in the new one lose this url
+        storage.asMap().compute(url, (key, replaced) -> {
+            if (replaced != null) {
+                Set<Integer> bookIds = snapshot.stream()
+                    .map(BookDto::getId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+
+                for (BookDto book : replaced.getValue()) {
+                    if (book.getId() != null && !bookIds.contains(book.getId())) {
+                        bookIndex.computeIfPresent(book.getId(), (bookId, urls) -> {
+                            urls.remove(url);
+
+                            return urls.isEmpty() ? null : urls;
+                        });
+                    }
+                }
+            }
+
+            addToIndex(url, snapshot);
+
+            return cacheObject;
+        });
     }
 
-    synchronized public boolean contains(String url) {
-        if (!storage.containsKey(url)) {
-            return false;
-        }
+    public BookDto getBookFromCache(int bookId, JoinMode joinMode) {
+        return booksStorage.getIfPresent(new BookKey(bookId, joinMode));
+    }
 
-        if (new Date(storage.get(url).getCreationDate().getTime() + storage.get(url).getExpirationTime()).before(new Date())) {
-            invalidateCache(url);
+    public void addBookToCache(int bookId, JoinMode joinMode, BookDto book) {
+        booksStorage.put(new BookKey(bookId, joinMode), book);
+    }
 
-            return false;
+    public void invalidateBook(int bookId) {
+        for (JoinMode joinMode : JoinMode.values()) {
+            booksStorage.invalidate(new BookKey(bookId, joinMode));
         }
-
-        return true;
     }
 
-    synchronized public void addToCache(String url, List<BookDto> dtos, long expirationTime) {
-        logger.trace("Caching service method: addToCache | Add value to cache");
+    public void deleteBook(int bookId) {
+        invalidateBook(bookId);
 
-        if (storageSize >= STORAGE_MAX_SIZE) {
-            String deletedUrl = history.removeFirst();
-            storage.remove(deletedUrl);
-        } else {
-            storageSize++;
+        Set<String> urls = bookIndex.remove(bookId);
+
+        if (urls == null) {
+            return;
         }
 
-        CacheObject<List<BookDto>> cacheObject = new CacheObject<>(dtos, new Date(), expirationTime);
+        logger.trace("Caching service method: deleteBook | Touched caches {}", urls.size());
 
-        storage.put(url, cacheObject);
-        history.addLast(url);
+        for (String url : urls) {
+            storage.asMap().computeIfPresent(url, (key, cacheObject) -> new CacheObject<>(
+                cacheObject.getValue().stream()
+                    .filter(bookDto -> !Objects.equals(bookDto.getId(), bookId))
+                    .toList(),
+                cacheObject.getCreationDate(),
+                cacheObject.getExpirationTime()
+            ));
+        }
     }
 
-    synchronized public void deleteBook(int bookId) {
-        for (int i = 0; i < storageSize; i++) {
-            List<BookDto> value = storage.get(history.get(i)).getValue();
+    public void updateBook(int bookId, BookDto updatedBook) {
+        invalidateBook(bookId);
 
-            for (int j = 0; j < value.size(); j++) {
-                if (value.get(j).getId() == bookId) {
-                    value.remove(j);
+        Set<String> urls = bookIndex.get(bookId);
 
-                    break;
-                }
-            }
+        if (urls == null) {
+            return;
         }
-    }
 
-    synchronized public void updateBook(int bookId, BookDto updatedBook) {
-        for (int i = 0; i < storageSize; i++) {
-            List<BookDto> value = storage.get(history.get(i)).getValue();
+        logger.trace("Caching service method: updateBook | Touched caches {}", urls.size());
+
+        for (String url : urls) {
+            storage.asMap().computeIfPresent(url, (key, cacheObject) -> new CacheObject<>(
+                cacheObject.getValue().stream()
+                    .map(bookDto -> {
+                        if (!Objects.equals(bookDto.getId(), bookId)) {
+                            return bookDto;
+                        }
+
+                        BookDto patchedBook = new BookDto(bookDto);
+                        patchedBook.setName(updatedBook.getName());
+                        patchedBook.setGenres(updatedBook.getGenres());
+
+                        return patchedBook;
+                    })
+                    .toList(),
+                cacheObject.getCreationDate(),
+                cacheObject.getExpirationTime()
+            ));
+        }
+    }
 
-            for (BookDto bookDto : value) {
-                if (bookDto.getId() == bookId) {
-                    bookDto.setName(updatedBook.getName());
-                    bookDto.setGenres(updatedBook.getGenres());
+    public long size() {
+        return storage.estimatedSize();
+    }
 
-                    break;
-                }
-            }
-        }
+    public int indexSize() {
+        return bookIndex.size();
     }
 
     @Scheduled(fixedRate = 120000)
     public void printStorage() {
         logger.info("---------CURRENT CACHE STORAGE STATE--------------------");
 
-        for (Map.Entry<String, CacheObject<List<BookDto>>> entry : storage.entrySet()) {
+        for (Map.Entry<String, CacheObject<List<BookDto>>> entry : storage.asMap().entrySet()) {
             logger.info("    {} : {} : {} : {}", entry.getKey(), entry.getValue().getCreationDate(), entry.getValue().getExpirationTime(), entry.getValue().getValue().size());
         }
 
+        logger.info("    stats: {}", storage.stats());
+        logger.info("    books by id: {} ; stats: {}", booksStorage.estimatedSize(), booksStorage.stats());
+        logger.info("    indexed books: {}", bookIndex.size());
         logger.info("--------------------------------------------------------");
     }
 
@@ -113,27 +236,83 @@ public class CachingService {
     public void checkAndDeleteInvalidCaches() {
         logger.trace("CachingService method: checkAndDeleteInvalidCaches | STARTING CLEANING");
 
-        int cleanedCaches = 0;
+        long sizeBefore = storage.estimatedSize();
 
-        CacheObject<List<BookDto>> temporalCacheObject;
+        storage.cleanUp();
+        booksStorage.cleanUp();
 
-        int ind = 0;
-        while (ind < storageSize) {
-            temporalCacheObject = storage.get(history.get(ind));
+        logger.trace("CachingService method: checkAndDeleteInvalidCaches | END CLEANING | cleaned {} caches",
+                sizeBefore - storage.estimatedSize());
+    }
+
+    private void addToIndex(String url, List<BookDto> books) {
+        for (BookDto book : books) {
+            if (book.getId() == null) {
+                continue;
+            }
+
+            bookIndex.compute(book.getId(), (bookId, urls) -> {
+                Set<String> bookUrls = (urls != null) ? urls : ConcurrentHashMap.newKeySet();
+                bookUrls.add(url);
+
+                return bookUrls;
+            });
+        }
+    }
+
+    private void removeFromIndex(String url, CacheObject<List<BookDto>> removedValue) {
+        if (removedValue == null) {
+            return;
+        }
+
+        for (BookDto book : removedValue.getValue()) {
+            if (book.getId() == null) {
+                continue;
+            }
+
+            // Url could be cached again with new value, in that case index entry is still valid
+            bookIndex.computeIfPresent(book.getId(), (bookId, urls) -> {
+                if (!storage.asMap().containsKey(url)) {
+                    urls.remove(url);
+                }
 
-            if (new Date(temporalCacheObject.getCreationDate().getTime() + temporalCacheObject.getExpirationTime()).before(new Date())) {
-                storage.remove(history.get(ind));
-                history.remove(ind);
+                return urls.isEmpty() ? null : urls;
+            });
+        }
+    }
+
+    private static long estimateSize(String url, List<BookDto> books) {
+        long size = STRING_OVERHEAD + 2L * url.length() + LIST_OVERHEAD;
+
+        for (BookDto book : books) {
+            size += BOOK_DTO_OVERHEAD;
 
-                storageSize--;
-                ind--;
-                cleanedCaches++;
+            if (book.getName() != null) {
+                size += STRING_OVERHEAD + 2L * book.getName().length();
             }
 
-            ind++;
+            if (book.getFilePath() != null) {
+                size += STRING_OVERHEAD + 2L * book.getFilePath().length();
+            }
+
+            if (book.getGenres() != null) {
+                size += LIST_OVERHEAD;
+
+                for (String genre : book.getGenres()) {
+                    size += STRING_OVERHEAD + 2L * genre.length();
+                }
+            }
+
+            if (book.getAuthor() != null) {
+                size += BOOK_DTO_OVERHEAD;
+            }
+
+            if (book.getStatuses() != null) {
+                size += STATUS_MAP_OVERHEAD * book.getStatuses().size();
+            }
         }
 
-        logger.trace("CachingService method: checkAndDeleteInvalidCaches | END CLEANING | cleaned {} caches", cleanedCaches);
+        return size;
     }
 
 }
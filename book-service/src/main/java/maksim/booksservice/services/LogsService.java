@@ -1,137 +1,321 @@
 package maksim.booksservice.services;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import maksim.booksservice.config.AppConfig;
 import maksim.booksservice.exceptions.AcceptedException;
-import maksim.booksservice.exceptions.BadRequestException;
 import maksim.booksservice.exceptions.FileException;
 import maksim.booksservice.exceptions.NotFoundException;
+import maksim.booksservice.exceptions.TooManyRequestsException;
 import maksim.booksservice.utils.enums.LogRequestStatus;
+import maksim.booksservice.utils.logutils.TimeOrderedLogFile;
+import maksim.booksservice.utils.logutils.TimeOrderedLogMerger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 @Component
 public class LogsService {
     private static final Logger logger = LoggerFactory.getLogger(LogsService.class);
 
-    private static final String LOGS_DIR = "app/logs/";
-    private static final String REQUESTED_LOGS_DIR = "app/requested_logs/";
-    private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Rolled files are named by their day (logback.xml: app.%d{yyyy-MM-dd}.log), current file has no date
+    private static final Pattern ROLLED_FILE_DATE = Pattern.compile(".*\\.(\\d{4}-\\d{2}-\\d{2})\\.log$");
 
-    private final Map<String, LogRequestStatus> requests = new ConcurrentHashMap<>();
+    private final AppConfig appConfig;
+    private final Executor logsTaskExecutor;
+
+    // Exports which are generated or downloaded right now, each one holds a permit
+    private final Semaphore exportPermits;
+
+    // Status with the time it was set, exports which weren't taken are deleted after expiration time
+    private record LogRequest(LogRequestStatus status, long updatedAt) { }
+
+    private final Map<String, LogRequest> requests = new ConcurrentHashMap<>();
+
+    // Exports which are being sent, they aren't in requests anymore
+    private final Set<Path> sending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public LogsService(AppConfig appConfig, @Qualifier("logsTaskExecutor") Executor logsTaskExecutor) {
+        // Exports wait for their copying tasks on the same pool, they can't take all of its threads
+        if (logsTaskExecutor instanceof ThreadPoolTaskExecutor pool
+                && appConfig.getLogsMaxExports() >= pool.getCorePoolSize()) {
+            throw new IllegalStateException(
+                "logs.max-exports (" + appConfig.getLogsMaxExports() + ") should be lower than core pool size of logs executor ("
+                    + pool.getCorePoolSize() + ")"
+            );
+        }
+
+        this.appConfig = appConfig;
+        this.logsTaskExecutor = logsTaskExecutor;
+        this.exportPermits = new Semaphore(appConfig.getLogsMaxExports());
+    }
 
     public LogRequestStatus getStatus(String id) {
-        return requests.get(id);
+        LogRequest request = requests.get(id);
+
+        return (request != null) ? request.status() : null;
     }
 
-    @Async
-    public void requestLogsFile(String id, LocalDateTime minDate, LocalDateTime maxDate) {
+    /*
+        Every log file is time ordered, so records of [minDate, maxDate] are one byte range of it.
+        Range is found by binary search (TimeOrderedLogFile), ranges of all files are merged in time order
+        and copied in parallel (TimeOrderedLogMerger) without reading lines
+     */
+    public String requestLogsFile(LocalDateTime minDate, LocalDateTime maxDate) {
         logger.trace("LogsService method entrance: requestLogsFile");
 
-        requests.put(id, LogRequestStatus.IN_PROCESS);
+        if (!exportPermits.tryAcquire()) {
+            throw new TooManyRequestsException("Too many logs exports are in progress, try again later");
+        }
 
-        Path outputFilePath = Paths.get(REQUESTED_LOGS_DIR, id + ".log");
+        String id = UUID.randomUUID().toString();
+        setStatus(id, LogRequestStatus.IN_PROCESS);
 
         try {
-            Thread.sleep(15000);
-        } catch (InterruptedException ex) {
-            ex.getMessage();
+            logsTaskExecutor.execute(() -> {
+                try {
+                    generateLogsFile(id, minDate, maxDate);
+                } finally {
+                    exportPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            requests.remove(id);
+            exportPermits.release();
+
+            throw new TooManyRequestsException("Too many logs exports are in progress, try again later");
         }
 
+        logger.trace("LogsService method end: requestLogsFile | Export {} was requested", id);
+
+        return id;
+    }
+
+    private void generateLogsFile(String id, LocalDateTime minDate, LocalDateTime maxDate) {
+        logger.trace("LogsService method entrance: generateLogsFile");
+
+        Path outputFilePath = Paths.get(appConfig.getRequestedLogsDirectory(), id + ".log");
+
         try {
             Files.createDirectories(outputFilePath.getParent());
 
-            try (BufferedWriter writer = Files.newBufferedWriter(outputFilePath,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<TimeOrderedLogFile> logFiles = new ArrayList<>();
+
+            try (FileChannel out = FileChannel.open(outputFilePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                List<TimeOrderedLogMerger.Source> sources = new ArrayList<>();
+
+                for (Path path : findLogFiles(minDate.toLocalDate(), maxDate.toLocalDate())) {
+                    TimeOrderedLogFile logFile = TimeOrderedLogFile.open(path);
+                    logFiles.add(logFile);
+
+                    TimeOrderedLogFile.Range range = logFile.range(minDate, maxDate);
+                    sources.add(new TimeOrderedLogMerger.Source(logFile, range));
 
-                try (Stream<Path> filesStream = Files.walk(Paths.get(LOGS_DIR))) {
-                    filesStream
-                        .filter(Files::isRegularFile)
-                        .filter(path -> path.toString().endsWith(".log"))
-                        .forEach(path -> processLogFile(path, writer, minDate, maxDate));
+                    logger.trace("LogsService method: generateLogsFile | {} : {} bytes", path, range.length());
+                }
+
+                /*
+                    Parts are copied by the same logs executor. This task waits for them, but max-exports
+                    is lower than core pool size (checked in constructor), so there are always free threads
+                    (rejected parts are copied by this thread)
+                 */
+                long written = TimeOrderedLogMerger.merge(sources, out, logsTaskExecutor);
+
+                logger.trace("LogsService method: generateLogsFile | Export {} : {} bytes", id, written);
+            } finally {
+                for (TimeOrderedLogFile logFile : logFiles) {
+                    logFile.close();
                 }
             }
-        } catch (IOException ex) {
-            throw new FileException("Error generating log file: " + ex.getMessage());
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Error generating log file: {}", ex.getMessage());
+
+            // Partial export is never sent
+            deleteLogsFile(outputFilePath);
+
+            setStatus(id, LogRequestStatus.FAILED);
+            return;
         }
 
-        requests.put(id, LogRequestStatus.READY);
+        setStatus(id, LogRequestStatus.READY);
 
-        logger.trace("LogsService method end: requestLogsFile");
+        logger.trace("LogsService method end: generateLogsFile");
     }
 
-    public ByteArrayOutputStream getLogsFromFile(String id) {
-        if (requests.get(id) == null) {
+    /*
+        Export is sent once: request is removed when it is taken, file is deleted by releaseLogsFile
+        after it was sent. Download holds a permit as well, so big exports aren't streamed all at once
+     */
+    public Path takeLogsFile(String id) {
+        LogRequest request = requests.get(id);
+
+        if (request == null) {
             throw new NotFoundException("Cannot find such request");
         }
 
-        if (requests.get(id) == LogRequestStatus.IN_PROCESS) {
+        if (request.status() == LogRequestStatus.IN_PROCESS) {
             throw new AcceptedException("File is not ready");
         }
 
-        Path filePath = Paths.get(REQUESTED_LOGS_DIR, id + ".log");
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (request.status() == LogRequestStatus.FAILED) {
+            requests.remove(id);
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath);
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream))) {
+            throw new FileException("Error generating log file");
+        }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                writer.write(line);
-                writer.newLine();
-            }
+        if (!exportPermits.tryAcquire()) {
+            throw new TooManyRequestsException("Too many logs exports are in progress, try again later");
+        }
 
-            Files.delete(filePath);
-            requests.remove(id);
-        } catch (IOException ex) {
-            throw new FileException("Error reading generated log file: " + ex.getMessage());
+        if (!requests.remove(id, request)) {
+            exportPermits.release();
+
+            throw new NotFoundException("Cannot find such request");
         }
 
-        return outputStream;
+        Path filePath = Paths.get(appConfig.getRequestedLogsDirectory(), id + ".log");
+        sending.add(filePath);
+
+        return filePath;
     }
 
-    private void processLogFile(Path filePath, BufferedWriter writer, LocalDateTime minDate, LocalDateTime maxDate) {
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
+    public void releaseLogsFile(Path filePath) {
+        try {
+            deleteLogsFile(filePath);
+        } finally {
+            sending.remove(filePath);
+            exportPermits.release();
+        }
+    }
+
+    /*
+        Exports which were never taken (and failed ones nobody asked about) expire,
+        files left by previous runs of the service are deleted as well
+     */
+    @Scheduled(fixedRate = 3600000)
+    public void deleteExpiredLogsFiles() {
+        logger.trace("LogsService method: deleteExpiredLogsFiles | STARTING CLEANING");
+
+        long expirationTime = System.currentTimeMillis() - appConfig.getLogsExpirationTime();
+        int deleted = 0;
+
+        for (Map.Entry<String, LogRequest> entry : requests.entrySet()) {
+            LogRequest request = entry.getValue();
+
+            if (request.status() != LogRequestStatus.IN_PROCESS
+                    && request.updatedAt() < expirationTime
+                    && requests.remove(entry.getKey(), request)) {
+                deleteLogsFile(Paths.get(appConfig.getRequestedLogsDirectory(), entry.getKey() + ".log"));
+                deleted++;
+            }
+        }
+
+        Path requestedDirectory = Paths.get(appConfig.getRequestedLogsDirectory());
+
+        if (Files.isDirectory(requestedDirectory)) {
+            List<Path> files;
+
+            try (Stream<Path> filesStream = Files.list(requestedDirectory)) {
+                files = filesStream.toList();
+            } catch (IOException e) {
+                logger.warn("Cannot list requested logs directory");
+                files = List.of();
+            }
+
+            for (Path file : files) {
+                String id = file.getFileName().toString().replace(".log", "");
 
-            while ((line = reader.readLine()) != null) {
                 try {
-                    parseLine(line, writer, minDate, maxDate);
-                } catch (DateTimeParseException e) {
-                    continue;
+                    if (!requests.containsKey(id) && !sending.contains(file)
+                            && Files.getLastModifiedTime(file).toMillis() < expirationTime) {
+                        deleteLogsFile(file);
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Cannot check requested log file {}", file);
                 }
             }
+        }
+
+        logger.trace("LogsService method: deleteExpiredLogsFiles | END CLEANING | deleted {} exports", deleted);
+    }
+
+    private void setStatus(String id, LogRequestStatus status) {
+        requests.put(id, new LogRequest(status, System.currentTimeMillis()));
+    }
+
+    private static void deleteLogsFile(Path filePath) {
+        try {
+            Files.deleteIfExists(filePath);
         } catch (IOException ex) {
-            throw new FileException("Error reading the log file: " + filePath);
+            logger.warn("Cannot delete log file {}", filePath);
         }
     }
 
-    private void parseLine(String line, BufferedWriter writer, LocalDateTime minDate, LocalDateTime maxDate) throws IOException {
-        if (line.length() >= 19) {
-            String dateStr = line.substring(0, 19);
+    // Log files which can contain records of [minDay, maxDay], in time order (rolled by day, then current one)
+    private List<Path> findLogFiles(LocalDate minDay, LocalDate maxDay) throws IOException {
+        Path logsDirectory = Paths.get(appConfig.getLogsDirectory());
 
-            LocalDateTime logDate = LocalDateTime.parse(dateStr, dateTimeFormatter);
+        if (!Files.isDirectory(logsDirectory)) {
+            return List.of();
+        }
 
-            if (!logDate.isBefore(minDate) && !logDate.isAfter(maxDate)) {
-                writer.write(line);
-                writer.newLine();
-            }
+        try (Stream<Path> filesStream = Files.list(logsDirectory)) {
+            return filesStream
+                .filter(Files::isRegularFile)
+                .filter(path -> path.toString().endsWith(".log"))
+                .filter(path -> {
+                    LocalDate day = rolledFileDay(path);
+
+                    return day == null || (!day.isBefore(minDay) && !day.isAfter(maxDay));
+                })
+                .sorted(Comparator.comparing(
+                    LogsService::rolledFileDay,
+                    Comparator.nullsLast(Comparator.naturalOrder())
+                ))
+                .toList();
+        }
+    }
+
+    private static LocalDate rolledFileDay(Path path) {
+        Matcher matcher = ROLLED_FILE_DATE.matcher(path.getFileName().toString());
+
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        try {
+            return LocalDate.parse(matcher.group(1));
+        } catch (DateTimeParseException e) {
+            return null;
         }
     }
-}
\ No newline at end of file
+}
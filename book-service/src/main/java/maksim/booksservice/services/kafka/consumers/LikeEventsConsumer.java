@@ -1,19 +1,20 @@
 package maksim.booksservice.services.kafka.consumers;
 
-import maksim.booksservice.exceptions.NotFoundException;
 import maksim.booksservice.services.BookService;
 import maksim.kafkaclient.dtos.CreateLikeKafkaDto;
 import maksim.kafkaclient.dtos.DeleteLikeKafkaDto;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class LikeEventsConsumer {
@@ -26,50 +27,38 @@ public class LikeEventsConsumer {
         this.bookService = bookService;
     }
 
-    @KafkaListener(topics = "like-create", groupId = "book-service")
-    public void listenLikeCreate(
-        CreateLikeKafkaDto likeDto,
-        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+    @KafkaListener(topics = {"like-create", "like-delete"}, groupId = "book-service")
+    public void listenLikes(
+        List<ConsumerRecord<String, Object>> records,
         Acknowledgment ack
     ) {
-        logger.trace("Kafka LikeEventsConsumer method entrance: listenLikeCreate | Get mes from topic {}", topic);
+        logger.trace("Kafka LikeEventsConsumer method entrance: listenLikes | Get {} mes", records.size());
+
+        // book id -> net likes change of the whole poll
+        Map<Integer, Integer> likesDeltas = new HashMap<>();
+
+        for (ConsumerRecord<String, Object> message : records) {
+            if (message.value() instanceof CreateLikeKafkaDto likeDto) {
+                likesDeltas.merge(likeDto.getBookId(), 1, Integer::sum);
+            } else if (message.value() instanceof DeleteLikeKafkaDto likeDto) {
+                likesDeltas.merge(likeDto.getBookId(), -1, Integer::sum);
+            } else {
+                logger.warn("Kafka LikeEventsConsumer method: listenLikes | Unknown mes from topic {}", message.topic());
+            }
+        }
 
         try {
-            bookService.addLike(likeDto);
+            bookService.applyLikesDeltas(likesDeltas);
 
             ack.acknowledge();
-        } catch (NotFoundException e) {
-            logger.trace("Kafka LikeEventsConsumer method exception: listenLikeCreate | Exception: {}", e.getMessage());
-            return;
         } catch (Exception e) {
-            ack.nack(Duration.ofSeconds(1));
-        }
-
-        logger.trace("Kafka LikeEventsConsumer method end: listenLikeCreate | Like created successfully");
-    }
-
-    @KafkaListener(topics = "like-delete", groupId = "book-service")
-    public void listenLikeDelete(
-        DeleteLikeKafkaDto likeDto,
-        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-        Acknowledgment ack
-    ) {
-        logger.trace("Kafka LikeEventsConsumer method entrance: listenLikeDelete | Get mes from topic {}", topic);
-
-        try {
-            bookService.deleteLike(likeDto);
+            logger.trace("Kafka LikeEventsConsumer method exception: listenLikes | Exception: {}", e.getMessage());
 
-            ack.acknowledge();
-        } catch (NotFoundException e) {
-            logger.trace("Kafka LikeEventsConsumer method exception: listenLikeDelete | Exception: {}", e.getMessage());
+            ack.nack(0, Duration.ofSeconds(1));
             return;
-        } catch (Exception e) {
-            ack.nack(Duration.ofSeconds(1));
         }
 
-        logger.trace("Kafka LikeEventsConsumer method end: listenLikeDelete | Like deleted successfully");
+        logger.trace("Kafka LikeEventsConsumer method end: listenLikes | Likes applied for {} books", likesDeltas.size());
     }
 
 }
-
-
@@ -1,22 +1,22 @@
 package maksim.booksservice.services.kafka.consumers;
 
-import maksim.booksservice.exceptions.NotFoundException;
 import maksim.booksservice.services.BookService;
 import maksim.kafkaclient.dtos.CreateStatusKafkaDto;
 import maksim.kafkaclient.dtos.UpdateStatusKafkaDto;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class StatusEventsConsumer {
-    private static final Logger logger = LoggerFactory.getLogger(LikeEventsConsumer.class);
+    private static final Logger logger = LoggerFactory.getLogger(StatusEventsConsumer.class);
 
     private final BookService bookService;
 
@@ -25,51 +25,38 @@ public class StatusEventsConsumer {
         this.bookService = bookService;
     }
 
-    @KafkaListener(topics = "status-create", groupId = "book-service")
-    public void listenStatusCreate(
-            CreateStatusKafkaDto statusDto,
-            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+    @KafkaListener(topics = {"status-create", "status-update"}, groupId = "book-service")
+    public void listenStatuses(
+            List<ConsumerRecord<String, Object>> records,
             Acknowledgment ack
     ) {
-        logger.trace("Kafka LikeEventsConsumer method entrance: listenStatusCreate | Get mes from topic {}", topic);
+        logger.trace("Kafka StatusEventsConsumer method entrance: listenStatuses | Get {} mes", records.size());
+
+        List<CreateStatusKafkaDto> createdStatuses = new ArrayList<>();
+        List<UpdateStatusKafkaDto> updatedStatuses = new ArrayList<>();
+
+        for (ConsumerRecord<String, Object> message : records) {
+            if (message.value() instanceof CreateStatusKafkaDto statusDto) {
+                createdStatuses.add(statusDto);
+            } else if (message.value() instanceof UpdateStatusKafkaDto statusDto) {
+                updatedStatuses.add(statusDto);
+            } else {
+                logger.warn("Kafka StatusEventsConsumer method: listenStatuses | Unknown mes from topic {}", message.topic());
+            }
+        }
 
         try {
-            bookService.createStatus(statusDto);
+            bookService.addStatuses(createdStatuses, updatedStatuses);
 
             ack.acknowledge();
-        } catch (NotFoundException e) {
-            logger.trace("Kafka LikeEventsConsumer method exception: listenStatusCreate | Exception: {}", e.getMessage());
-            return;
         } catch (Exception e) {
-            ack.nack(Duration.ofSeconds(1));
-        }
-
-        logger.trace("Kafka LikeEventsConsumer method end: listenStatusCreate | Status created successfully");
-    }
-
-    @KafkaListener(topics = "status-update", groupId = "book-service")
-    public void listenStatusUpdate(
-            UpdateStatusKafkaDto statusDto,
-            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-            Acknowledgment ack
-    ) {
-        logger.trace("Kafka LikeEventsConsumer method entrance: listenStatusUpdate | Get mes from topic {}", topic);
+            logger.trace("Kafka StatusEventsConsumer method exception: listenStatuses | Exception: {}", e.getMessage());
 
-        try {
-            bookService.updateStatus(statusDto);
-
-            ack.acknowledge();
-        } catch (NotFoundException e) {
-            logger.trace("Kafka LikeEventsConsumer method exception: listenStatusUpdate | Exception: {}", e.getMessage());
+            ack.nack(0, Duration.ofSeconds(1));
             return;
-        } catch (Exception e) {
-            ack.nack(Duration.ofSeconds(1));
         }
 
-        logger.trace("Kafka LikeEventsConsumer method end: listenStatusUpdate | Like deleted successfully");
+        logger.trace("Kafka StatusEventsConsumer method end: listenStatuses | Statuses added successfully");
     }
 
-
 }
-
-
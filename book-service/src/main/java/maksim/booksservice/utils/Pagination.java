@@ -12,8 +12,9 @@ public class Pagination {
 
     private Pagination() {}
 
+    // Id is always the last sort key, so order is stable and can be continued with keyset token
     public static Sort getSort(String sortField, String sortDir) {
-        Sort sort = Sort.by(sortField);
+        Sort sort = Sort.by(sortField, "id");
 
         if (sortDir.equals("asc")) {
             sort = sort.ascending();
@@ -31,20 +32,26 @@ public class Pagination {
     }
 
     public static Pageable getPageable(int pageNum, int itemsAmount, SortField sortField, SortDirection sortDirection) {
-        return PageRequest.of(pageNum, itemsAmount, getSort(sortField.getValue(), sortDirection.getValue()));
+        return PageRequest.of(pageNum, itemsAmount, getSort(sortField.getProperty(), sortDirection.getValue()));
     }
 
-    public static Pageable getPageable(Map<String, String> params) {
-        SortField sortField = (params.containsKey("sortField"))
+    public static SortField getSortField(Map<String, String> params) {
+        return (params.containsKey("sortField"))
                 ? SortField.fromValue(params.get("sortField")) : SortField.fromValue("rating");
+    }
+
+    public static Pageable getPageable(Map<String, String> params) {
+        SortField sortField = getSortField(params);
 
         SortDirection sortDir = (params.containsKey("sortDirection"))
                 ? SortDirection.fromValue(params.get("sortDirection")) : SortDirection.fromValue("desc");
 
-        int pageNum = (params.containsKey("pageNum")) ? Integer.parseInt(params.get("pageNum")) : 0;
+        // With continuation token the page is selected by keyset, not by page number
+        int pageNum = (params.containsKey("pageNum") && !params.containsKey("continuationToken"))
+                ? Integer.parseInt(params.get("pageNum")) : 0;
         int pageSize = (params.containsKey("pageSize")) ? Integer.parseInt(params.get("pageSize")) : 20;
 
-        return PageRequest.of(pageNum, pageSize, getSort(sortField.getValue(), sortDir.getValue()));
+        return PageRequest.of(pageNum, pageSize, getSort(sortField.getProperty(), sortDir.getValue()));
     }
 
 }
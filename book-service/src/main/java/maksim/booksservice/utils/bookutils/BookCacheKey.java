@@ -0,0 +1,121 @@
+package maksim.booksservice.utils.bookutils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import maksim.booksservice.utils.enums.DateOperator;
+import maksim.booksservice.utils.enums.JoinMode;
+import maksim.booksservice.utils.enums.NumberOperator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/*
+    Builds canonical cache key for books query. Key doesn't depend on params order,
+    host or spelled out default values, so equivalent queries share one cache entry
+ */
+public class BookCacheKey {
+    private static final String PREFIX = "books?";
+
+    private static final String DEFAULT_STATUS_MIN_DATE = "1990-01-01";
+    private static final String DEFAULT_STATUS_MAX_DATE = "2222-01-01";
+
+    private static final int DEFAULT_PAGE_NUM = 0;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final Sort DEFAULT_SORT = Sort.by("rating", "id").descending();
+
+    private BookCacheKey() {}
+
+    public static String of(BookSearchCriteria criteria, Pageable pageable) {
+        Map<String, String> params = new TreeMap<>();
+
+        putIfNotNull(params, "name", criteria.getName());
+        putIfNotNull(params, "authorId", criteria.getAuthorId());
+        putIfNotNull(params, "authorName", criteria.getAuthorName());
+
+        if (criteria.getGenres() != null) {
+            params.put("genres", String.join(",", new TreeSet<>(criteria.getGenres())));
+        }
+
+        if (criteria.getIssuedDate() != null) {
+            params.put("issuedDate", formatDate(criteria, criteria.getIssuedDate()));
+
+            if (criteria.getIssuedDateOperator() != DateOperator.NEWER) {
+                putIfNotNull(params, "issuedDateOperator", criteria.getIssuedDateOperator());
+            }
+        }
+
+        if (criteria.getRating() != null) {
+            params.put("rating", criteria.getRating().toString());
+
+            if (criteria.getRatingOperator() != NumberOperator.GREATER) {
+                putIfNotNull(params, "ratingOperator", criteria.getRatingOperator());
+            }
+        }
+
+        if (criteria.getJoinModeForAuthor() == JoinMode.WITH) {
+            params.put("joinModeForAuthor", JoinMode.WITH.getValue());
+        }
+
+        if (criteria.getJoinModeForStatuses() == JoinMode.WITH) {
+            params.put("joinModeForStatuses", JoinMode.WITH.getValue());
+
+            String statusMinDate = formatDate(criteria, criteria.getStatusMinDate());
+            String statusMaxDate = formatDate(criteria, criteria.getStatusMaxDate());
+
+            if (!DEFAULT_STATUS_MIN_DATE.equals(statusMinDate)) {
+                params.put("statusMinDate", statusMinDate);
+            }
+
+            if (!DEFAULT_STATUS_MAX_DATE.equals(statusMaxDate)) {
+                params.put("statusMaxDate", statusMaxDate);
+            }
+        }
+
+        if (criteria.getContinuationToken() != null) {
+            params.put("continuationToken", criteria.getContinuationToken().encode());
+        }
+
+        if (pageable.isPaged()) {
+            if (pageable.getPageNumber() != DEFAULT_PAGE_NUM) {
+                params.put("pageNum", String.valueOf(pageable.getPageNumber()));
+            }
+
+            if (pageable.getPageSize() != DEFAULT_PAGE_SIZE) {
+                params.put("pageSize", String.valueOf(pageable.getPageSize()));
+            }
+        } else {
+            params.put("unpaged", "true");
+        }
+
+        if (!DEFAULT_SORT.equals(pageable.getSort())) {
+            StringJoiner sort = new StringJoiner(",");
+            pageable.getSort().forEach(order ->
+                sort.add(order.getProperty() + ":" + order.getDirection().name().toLowerCase())
+            );
+
+            params.put("sort", sort.toString());
+        }
+
+        StringJoiner key = new StringJoiner("&", PREFIX, "");
+        params.forEach((name, value) ->
+            key.add(name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8))
+        );
+
+        return key.toString();
+    }
+
+    private static void putIfNotNull(Map<String, String> params, String name, Object value) {
+        if (value != null) {
+            params.put(name, value.toString());
+        }
+    }
+
+    private static String formatDate(BookSearchCriteria criteria, Date date) {
+        return criteria.getFormatter().format(date);
+    }
+
+}
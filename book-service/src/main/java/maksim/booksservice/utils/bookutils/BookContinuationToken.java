@@ -0,0 +1,82 @@
+package maksim.booksservice.utils.bookutils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import lombok.Getter;
+import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.models.dtos.result.BookDto;
+import maksim.booksservice.utils.enums.SortField;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+/*
+    Opaque cursor for keyset pagination: sort key and id of the last returned book,
+    next page is selected with (sortKey, id) seek instead of OFFSET
+ */
+@Getter
+public class BookContinuationToken {
+    private static final String SEPARATOR = "|";
+
+    private final SortField sortField;
+    private final Object lastValue;
+    private final int lastId;
+
+    private BookContinuationToken(SortField sortField, Object lastValue, int lastId) {
+        this.sortField = sortField;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    public static BookContinuationToken of(BookDto lastBook, SortField sortField) {
+        Object lastValue = switch (sortField) {
+            case RATING -> lastBook.getRating();
+            case NAME -> lastBook.getName();
+            case RATINGS_COUNT -> lastBook.getRatingsCount();
+            case ISSUED_DATE -> lastBook.getIssuedDate();
+        };
+
+        return new BookContinuationToken(sortField, lastValue, lastBook.getId());
+    }
+
+    public static BookContinuationToken decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+
+            // Value is in the middle, so names with separator inside are still parsed correctly
+            int firstSeparator = decoded.indexOf(SEPARATOR);
+            int lastSeparator = decoded.lastIndexOf(SEPARATOR);
+
+            SortField sortField = SortField.fromValue(decoded.substring(0, firstSeparator));
+            String value = decoded.substring(firstSeparator + 1, lastSeparator);
+            int lastId = Integer.parseInt(decoded.substring(lastSeparator + 1));
+
+            Object lastValue = switch (sortField) {
+                case RATING -> Float.parseFloat(value);
+                case NAME -> value;
+                case RATINGS_COUNT -> Integer.parseInt(value);
+                case ISSUED_DATE -> new Date(Long.parseLong(value));
+            };
+
+            return new BookContinuationToken(sortField, lastValue, lastId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid continuation token");
+        }
+    }
+
+    public String encode() {
+        String value = (lastValue instanceof Date date) ? String.valueOf(date.getTime()) : String.valueOf(lastValue);
+        String raw = sortField.getValue() + SEPARATOR + value + SEPARATOR + lastId;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public KeysetScrollPosition toScrollPosition() {
+        return ScrollPosition.forward(Map.of(
+            sortField.getProperty(), lastValue,
+            "id", lastId
+        ));
+    }
+
+}
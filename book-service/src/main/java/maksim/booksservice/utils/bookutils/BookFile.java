@@ -0,0 +1,29 @@
+package maksim.booksservice.utils.bookutils;
+
+import java.nio.file.Path;
+
+/*
+    Book file with metadata stored at upload, hash is sha-256 of file content (hex).
+    Location is file path relative to book files directory (named by content hash),
+    name is file name for downloads (derived from book name).
+    Gzip is precompressed variant of the file (null when there is no one)
+ */
+public record BookFile(Path path, String location, String name, String contentType, long size, String hash, Variant gzip) {
+
+    public record Variant(Path path, String location, long size) {}
+
+    public BookFile(Path path, String location, String name, String contentType, long size, String hash) {
+        this(path, location, name, contentType, size, hash, null);
+    }
+
+    // Strong validator, content hash changes whenever file bytes change
+    public String getETag() {
+        return "\"" + hash + "\"";
+    }
+
+    // Encoded representation has other bytes, so it needs its own strong validator
+    public String getGzipETag() {
+        return "\"" + hash + "-gzip\"";
+    }
+
+}
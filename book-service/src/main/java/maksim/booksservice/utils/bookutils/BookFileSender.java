@@ -0,0 +1,249 @@
+package maksim.booksservice.utils.bookutils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.utils.enums.FileDeliveryMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+/*
+    Writes book file to response: conditional (ETag / If-None-Match), single byte range
+    (Range / If-Range) and precompressed gzip variant by Accept-Encoding.
+    Under tomcat file bytes are sent by sendfile and never enter java heap, other containers get
+    them streamed through a small buffer. In nginx delivery mode only headers are sent,
+    nginx serves the file (and ranges) itself
+ */
+@Component
+public class BookFileSender {
+    private static final Logger logger = LoggerFactory.getLogger(BookFileSender.class);
+
+    // Tomcat sends file by itself (sendfile syscall) when these request attributes are set
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_UNIT = "bytes";
+    private static final String X_ACCEL_REDIRECT = "X-Accel-Redirect";
+    private static final String GZIP_ENCODING = "gzip";
+
+    private record Representation(Path path, String location, long size, String eTag, String encoding) {}
+
+    private final FileDeliveryMode deliveryMode;
+    private final String internalLocation;
+
+    @Autowired
+    public BookFileSender(AppConfig appConfig) {
+        this.deliveryMode = FileDeliveryMode.fromValue(appConfig.getBookFilesDelivery());
+        this.internalLocation = appConfig.getBookFilesInternalLocation();
+    }
+
+    public void send(BookFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Representation representation = chooseRepresentation(file, request);
+
+        // Response depends on Accept-Encoding only when there is encoded variant
+        if (file.gzip() != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        response.setHeader(HttpHeaders.ETAG, representation.eTag());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), representation)) {
+            logger.trace("BookFileSender method: send | Not modified {}", file.location());
+
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // Book names aren't always ascii, those are sent encoded (rfc 5987)
+        ContentDisposition.Builder disposition = StandardCharsets.US_ASCII.newEncoder().canEncode(file.name())
+            ? ContentDisposition.attachment().filename(file.name())
+            : ContentDisposition.attachment().filename(file.name(), StandardCharsets.UTF_8);
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+        response.setContentType(file.contentType());
+
+        if (representation.encoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, representation.encoding());
+        }
+
+        if (deliveryMode == FileDeliveryMode.NGINX) {
+            logger.trace("BookFileSender method: send | Redirect to nginx {}", representation.location());
+
+            response.setHeader(X_ACCEL_REDIRECT, internalLocation + UriUtils.encodePath(representation.location(), StandardCharsets.UTF_8));
+            response.setStatus(HttpServletResponse.SC_OK);
+            return;
+        }
+
+        HttpRange range = requestedRange(request, representation);
+
+        if (range == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+
+            writeRegion(representation, 0, representation.size(), request, response);
+            return;
+        }
+
+        long start = range.getRangeStart(representation.size());
+        long end = range.getRangeEnd(representation.size());
+
+        if (start >= representation.size() || start > end) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + representation.size());
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        logger.trace("BookFileSender method: send | Range {}-{} of {}", start, end, representation.location());
+
+        response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " " + start + "-" + end + "/" + representation.size());
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        writeRegion(representation, start, end - start + 1, request, response);
+    }
+
+    // Precompressed variant is sent as is, so it costs nothing per request. Ranges are ranges of chosen representation
+    private static Representation chooseRepresentation(BookFile file, HttpServletRequest request) {
+        if (file.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return new Representation(file.gzip().path(), file.gzip().location(), file.gzip().size(), file.getGzipETag(), GZIP_ENCODING);
+        }
+
+        return new Representation(file.path(), file.location(), file.size(), file.getETag(), null);
+    }
+
+    // gzip is accepted when it (or *) is listed without q=0, explicit gzip entry wins over *
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Boolean gzip = null;
+        boolean any = false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            boolean accepted = true;
+
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+
+                if (param.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+
+            if (name.equals(GZIP_ENCODING) || name.equals("x-gzip")) {
+                gzip = accepted;
+            } else if (name.equals("*")) {
+                any = accepted;
+            }
+        }
+
+        return (gzip != null) ? gzip : any;
+    }
+
+    // Range is ignored (whole file is sent) when it is malformed, has several parts or If-Range doesn't match
+    private static HttpRange requestedRange(HttpServletRequest request, Representation representation) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        if (rangeHeader == null) {
+            return null;
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange != null && !ifRange.trim().equals(representation.eTag())) {
+            return null;
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+
+            return (ranges.size() == 1) ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // If-None-Match uses weak comparison, so W/"hash" matches too
+    private static boolean matchesETag(String ifNoneMatch, Representation representation) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmedTag = tag.trim();
+
+            if (trimmedTag.equals("*")) {
+                return true;
+            }
+
+            if (trimmedTag.startsWith("W/")) {
+                trimmedTag = trimmedTag.substring(2);
+            }
+
+            if (trimmedTag.equals(representation.eTag())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void writeRegion(
+        Representation representation,
+        long start,
+        long length,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, representation.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+
+            return;
+        }
+
+        // Servlet output stream takes only byte arrays, so the channel copies through its (8kb) heap buffer
+        try (FileChannel channel = FileChannel.open(representation.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+
+            long position = start;
+            long end = start + length;
+
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+
+                if (sent <= 0) {
+                    break;
+                }
+
+                position += sent;
+            }
+        }
+    }
+
+}
@@ -34,6 +34,8 @@ public class BookSearchCriteria {
     private JoinMode joinModeForAuthor = JoinMode.WITHOUT;
     private JoinMode joinModeForStatuses = JoinMode.WITHOUT;
 
+    private BookContinuationToken continuationToken = null;
+
     private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 
     private void includeDate(Map<String, String> params) {
@@ -70,6 +72,10 @@ public class BookSearchCriteria {
             this.joinModeForAuthor = JoinMode.fromValue(params.get("joinModeForAuthor"));
         }
 
+        if (params.containsKey("continuationToken")) {
+            this.continuationToken = BookContinuationToken.decode(params.get("continuationToken"));
+        }
+
         if (params.containsKey("joinModeForStatuses")) {
             this.joinModeForStatuses = JoinMode.fromValue(params.get("joinModeForStatuses"));
 
@@ -0,0 +1,32 @@
+package maksim.booksservice.utils.bookutils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/*
+    Turns raw key words into postgres tsquery, where every word is a prefix,
+    so "harr pot" matches "Harry Potter". Everything except letters and digits
+    is dropped, so user input can't break tsquery syntax
+ */
+public class BookSearchQuery {
+    private static final int MAX_WORDS = 10;
+
+    private BookSearchQuery() {}
+
+    public static String toPrefixTsQuery(String keyWords) {
+        if (keyWords == null || keyWords.isBlank()) {
+            return null;
+        }
+
+        String query = Arrays.stream(keyWords.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .limit(MAX_WORDS)
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+
+        return query.isEmpty() ? null : query;
+    }
+
+}
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import maksim.booksservice.models.entities.Book;
 import maksim.booksservice.utils.enums.JoinMode;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.jpa.domain.Specification;
 
 public class BookSpecification implements Specification<Book> {
@@ -42,7 +43,10 @@ public class BookSpecification implements Specification<Book> {
         }
 
         if (criteria.getGenres() != null && !criteria.getGenres().isEmpty()) {
-            // Write logic later
+            // Rendered as genres @> ARRAY[...], so postgres can use GIN index on books.genres
+            HibernateCriteriaBuilder hibernateBuilder = (HibernateCriteriaBuilder) builder;
+
+            predicates.add(hibernateBuilder.collectionIncludes(root.get("genres"), criteria.getGenres()));
         }
 
         if (criteria.getIssuedDate() != null && criteria.getIssuedDateOperator() != null) {
@@ -66,10 +70,6 @@ public class BookSpecification implements Specification<Book> {
             );
         }
 
-        if (criteria.getJoinModeForStatuses() == JoinMode.WITH) {
-            root.fetch("statusesLogs", JoinType.LEFT);
-        }
-
         return builder.and(predicates.toArray(new Predicate[0]));
     }
 
@@ -0,0 +1,26 @@
+package maksim.booksservice.utils.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum FileDeliveryMode {
+    // File bytes are written by book-service itself
+    DIRECT("direct"),
+    // book-service only sends X-Accel-Redirect, nginx serves file from shared volume
+    NGINX("nginx");
+
+    private final String value;
+
+    FileDeliveryMode(String value) {
+        this.value = value;
+    }
+
+    public static FileDeliveryMode fromValue(String value) {
+        for (FileDeliveryMode field : values()) {
+            if (field.value.equalsIgnoreCase(value)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown file delivery mode: " + value);
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 public enum LogRequestStatus {
     IN_PROCESS("in_process"),
     READY("ready"),
+    FAILED("failed"),
     NOT_REQUESTED("not_requested");
 
     private final String value;
@@ -4,15 +4,19 @@ import lombok.Getter;
 
 @Getter
 public enum SortField {
-    RATING("rating"),
-    NAME("name"),
-    RATINGS_COUNT("ratings-count"),
-    ISSUED_DATE("issued-date");
+    RATING("rating", "rating"),
+    NAME("name", "name"),
+    RATINGS_COUNT("ratings-count", "ratingCount"),
+    ISSUED_DATE("issued-date", "issuedDate");
 
     private final String value;
 
-    SortField(String value) {
+    // Book entity property
+    private final String property;
+
+    SortField(String value, String property) {
         this.value = value;
+        this.property = property;
     }
 
     public static SortField fromValue(String value) {
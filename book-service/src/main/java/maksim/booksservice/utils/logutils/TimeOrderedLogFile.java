@@ -0,0 +1,227 @@
+package maksim.booksservice.utils.logutils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/*
+    Log file written by logback: records are appended in time order and every record starts
+    with "yyyy-MM-dd HH:mm:ss" timestamp, lines without it (stack traces) belong to previous record.
+    File is memory-mapped and searched by binary search over byte offsets, timestamps are compared
+    as raw ascii bytes (the format is ordered lexicographically), so lines are never parsed
+ */
+public class TimeOrderedLogFile implements AutoCloseable {
+    public static final int TIMESTAMP_LENGTH = 19;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Single mapping can't be bigger than 2gb
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    // Byte range [start, end) of whole records
+    public record Range(long start, long end) {
+        public long length() {
+            return end - start;
+        }
+    }
+
+    private TimeOrderedLogFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        long mappedSize = channel.size();
+        this.segments = new MappedByteBuffer[(int) ((mappedSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+
+        for (int i = 0; i < segments.length; i++) {
+            long position = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, mappedSize - position));
+        }
+
+        // File can be appended right now, half written last line is left out
+        long end = mappedSize;
+        while (end > 0 && get(end - 1) != '\n') {
+            end--;
+        }
+
+        this.size = end;
+    }
+
+    public static TimeOrderedLogFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new TimeOrderedLogFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static byte[] timestamp(LocalDateTime dateTime) {
+        return TIMESTAMP_FORMATTER.format(dateTime).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Records with minDate <= timestamp <= maxDate (timestamps have seconds precision)
+    public Range range(LocalDateTime minDate, LocalDateTime maxDate) {
+        long start = seek(timestamp(minDate), true);
+        long end = seek(timestamp(maxDate), false);
+
+        return new Range(start, Math.max(start, end));
+    }
+
+    /*
+        Offset of the first record with timestamp >= bound (inclusive) or > bound, file size if there is no one.
+        Predicate "record at or after offset x passes bound" is monotonic in x, so the smallest such x is searched
+     */
+    public long seek(byte[] bound, boolean inclusive) {
+        long low = 0;
+        long high = size;
+
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            long record = recordStartFrom(middle);
+
+            boolean passes = record == size || (inclusive
+                ? compareTimestampAt(record, bound) >= 0
+                : compareTimestampAt(record, bound) > 0);
+
+            if (passes) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return recordStartFrom(low);
+    }
+
+    public void transferTo(Range range, WritableByteChannel target) throws IOException {
+        long position = range.start();
+
+        while (position < range.end()) {
+            long sent = channel.transferTo(position, range.end() - position, target);
+
+            if (sent <= 0) {
+                break;
+            }
+
+            position += sent;
+        }
+    }
+
+    /*
+        Positional copy of bytes [start, end) into target starting from targetPosition. Mapped slices and
+        positional writes share no state, so different parts can be copied by different threads at once
+     */
+    public void writeTo(long start, long end, FileChannel target, long targetPosition) throws IOException {
+        long position = start;
+        long written = targetPosition;
+
+        while (position < end) {
+            int offset = (int) (position % SEGMENT_SIZE);
+            int length = (int) Math.min(end - position, SEGMENT_SIZE - offset);
+            ByteBuffer slice = segments[(int) (position / SEGMENT_SIZE)].slice(offset, length);
+
+            while (slice.hasRemaining()) {
+                written += target.write(slice, written);
+            }
+
+            position += length;
+        }
+    }
+
+    public byte[] timestampAt(long position) {
+        byte[] timestamp = new byte[TIMESTAMP_LENGTH];
+
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            timestamp[i] = get(position + i);
+        }
+
+        return timestamp;
+    }
+
+    public byte get(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    // Compares timestamp of record at position with bound byte by byte
+    public int compareTimestampAt(long position, byte[] bound) {
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            int difference = get(position + i) - bound[i];
+
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return 0;
+    }
+
+    public boolean isRecordStart(long position) {
+        if (position + TIMESTAMP_LENGTH > size) {
+            return false;
+        }
+
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            byte b = get(position + i);
+
+            boolean valid = switch (i) {
+                case 4, 7 -> b == '-';
+                case 10 -> b == ' ';
+                case 13, 16 -> b == ':';
+                default -> b >= '0' && b <= '9';
+            };
+
+            if (!valid) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // First record which starts at position or after it
+    public long recordStartFrom(long position) {
+        long line = position;
+
+        if (line > 0 && line < size && get(line - 1) != '\n') {
+            line = nextLine(line);
+        }
+
+        while (line < size && !isRecordStart(line)) {
+            line = nextLine(line);
+        }
+
+        return Math.min(line, size);
+    }
+
+    public long nextLine(long position) {
+        long current = position;
+
+        while (current < size && get(current) != '\n') {
+            current++;
+        }
+
+        return current + 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,154 @@
+package maksim.booksservice.utils.logutils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+    Merges record ranges of several log files into one file in timestamp order.
+    Merge is planned first: k-way merge over the ranges where every step takes the whole run of records
+    of one file which are not later than the head of the next file (found by binary search), so files
+    which don't overlap in time (rolled by day) give one run each. Every run has its place in the target,
+    so runs are copied by parts of PART_SIZE bytes in parallel with positional writes
+ */
+public final class TimeOrderedLogMerger {
+    private static final long PART_SIZE = 16L * 1024 * 1024;
+
+    public record Source(TimeOrderedLogFile file, TimeOrderedLogFile.Range range) { }
+
+    private record Run(TimeOrderedLogFile file, long start, long end, long targetPosition) { }
+
+    private static class Cursor {
+        private final int order;
+        private final TimeOrderedLogFile file;
+        private final long end;
+        private long position;
+        private byte[] head;
+
+        Cursor(int order, Source source) {
+            this.order = order;
+            this.file = source.file();
+            this.end = source.range().end();
+            this.position = source.range().start();
+            this.head = file.timestampAt(position);
+        }
+    }
+
+    private TimeOrderedLogMerger() { }
+
+    // Returns count of written bytes. Sources with equal timestamps keep their order in the list
+    public static long merge(List<Source> sources, FileChannel target, Executor executor) throws IOException {
+        List<Run> runs = plan(sources);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        List<Run> batch = new ArrayList<>();
+        long batchSize = 0;
+        long written = 0;
+
+        for (Run run : runs) {
+            for (long start = run.start(); start < run.end(); start += PART_SIZE) {
+                long end = Math.min(run.end(), start + PART_SIZE);
+
+                batch.add(new Run(run.file(), start, end, run.targetPosition() + start - run.start()));
+                batchSize += end - start;
+
+                // Short runs of interleaved files are copied together
+                if (batchSize >= PART_SIZE) {
+                    parts.add(copyAsync(batch, target, executor));
+                    batch = new ArrayList<>();
+                    batchSize = 0;
+                }
+            }
+
+            written = run.targetPosition() + run.end() - run.start();
+        }
+
+        if (!batch.isEmpty()) {
+            parts.add(copyAsync(batch, target, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+
+            throw e;
+        }
+
+        return written;
+    }
+
+    private static List<Run> plan(List<Source> sources) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+            Comparator.<Cursor, byte[]>comparing(cursor -> cursor.head, Arrays::compare)
+                .thenComparingInt(cursor -> cursor.order)
+        );
+
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).range().length() > 0) {
+                cursors.add(new Cursor(i, sources.get(i)));
+            }
+        }
+
+        List<Run> runs = new ArrayList<>();
+        long targetPosition = 0;
+
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            Cursor next = cursors.peek();
+
+            /*
+                Run goes up to the first record later than the next head, it has at least the current record.
+                Search is over the whole file, so out of order record before the cursor can be found as well
+             */
+            long runEnd = next == null
+                ? cursor.end
+                : Math.min(cursor.end, Math.max(
+                    cursor.file.seek(next.head, false),
+                    cursor.file.recordStartFrom(cursor.position + 1)
+                ));
+
+            runs.add(new Run(cursor.file, cursor.position, runEnd, targetPosition));
+            targetPosition += runEnd - cursor.position;
+
+            if (runEnd < cursor.end) {
+                cursor.position = runEnd;
+                cursor.head = cursor.file.timestampAt(runEnd);
+                cursors.add(cursor);
+            }
+        }
+
+        return runs;
+    }
+
+    private static CompletableFuture<Void> copyAsync(List<Run> batch, FileChannel target, Executor executor) {
+        Runnable copy = () -> {
+            try {
+                for (Run run : batch) {
+                    run.file().writeTo(run.start(), run.end(), target, run.targetPosition());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        try {
+            return CompletableFuture.runAsync(copy, executor);
+        } catch (RejectedExecutionException e) {
+            // Pool is full, the merging thread copies this part itself
+            return CompletableFuture.runAsync(copy, Runnable::run);
+        }
+    }
+
+}
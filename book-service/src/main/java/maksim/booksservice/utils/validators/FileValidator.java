@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.models.dtos.crud.CreateUploadDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,6 +15,8 @@ import org.springframework.web.multipart.MultipartFile;
 public class FileValidator {
     private final AppConfig appConfig;
     private static final String[] DANGEROUS_PATTERNS = {"../", "./", "'", "\"", ";", "--", "/*", "*/", "xp_", "exec"};
+    private static final List<String> ALLOWED_MIME_TYPES = Arrays.asList("application/pdf", "text/markdown", "text/plain");
+    private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList("txt", "pdf", "md");
 
     @Autowired
     FileValidator(AppConfig appConfig) {
@@ -63,18 +66,10 @@ public class FileValidator {
             return false;
         }
 
-        List<String> allowedMimeTypes = Arrays.asList(
-                "application/pdf",
-                "text/markdown",
-                "text/plain"
-        );
-
-        return allowedMimeTypes.contains(file.getContentType());
+        return ALLOWED_MIME_TYPES.contains(file.getContentType());
     }
 
     public boolean isFileExtensionAllowed(MultipartFile file) {
-        List<String> allowedExtensions = Arrays.asList("txt", "pdf", "md");
-
         if (file == null || file.getOriginalFilename() == null) {
             return false;
         }
@@ -89,7 +84,7 @@ public class FileValidator {
                 .substring(fileName.lastIndexOf(".") + 1)
                 .toLowerCase();
 
-        return allowedExtensions.contains(fileExtension);
+        return ALLOWED_EXTENSIONS.contains(fileExtension);
     }
 
     public boolean isFileSizeValid(MultipartFile file) {
@@ -101,4 +96,36 @@ public class FileValidator {
         return file.getSize() <= maxFileSize;
     }
 
+    // Chunked upload is declared before any byte is sent, so its metadata is checked instead of the file
+    public boolean isValidUpload(CreateUploadDto upload) {
+        if (upload == null || upload.getFileName() == null || upload.getSize() == null) {
+            return false;
+        }
+
+        String fileName = upload.getFileName();
+
+        for (String pattern : DANGEROUS_PATTERNS) {
+            if (fileName.contains(pattern)) {
+                return false;
+            }
+        }
+
+        Path targetPath = new File(appConfig.getBookFilesDirectory()).toPath().normalize();
+        File targetFile = new File(appConfig.getBookFilesDirectory() + fileName);
+
+        if (!targetFile.toPath().normalize().startsWith(targetPath) || fileName.lastIndexOf(".") == -1) {
+            return false;
+        }
+
+        String fileExtension = fileName
+                .substring(fileName.lastIndexOf(".") + 1)
+                .toLowerCase();
+
+        return
+            ALLOWED_MIME_TYPES.contains(upload.getContentType())
+            && ALLOWED_EXTENSIONS.contains(fileExtension)
+            && upload.getSize() > 0
+            && upload.getSize() <= appConfig.getUploadMaxFileSize();
+    }
+
 }
@@ -0,0 +1,26 @@
+-- Runs after hibernate schema update (see spring.jpa.defer-datasource-initialization),
+-- so every statement here should be idempotent
+
+-- Fill statuses counters from existing statuses logs (only once, when counters are empty)
+INSERT INTO books_statuses_counters (book_id, status, added_day, count)
+SELECT l.book_id, UPPER(l.status), CAST(l.added_date AS DATE), COUNT(*)
+FROM books_statuses_logs l
+WHERE l.book_id IS NOT NULL
+    AND l.added_date IS NOT NULL
+    AND UPPER(l.status) IN ('READ', 'READING', 'DROP')
+    AND NOT EXISTS (SELECT 1 FROM books_statuses_counters)
+GROUP BY l.book_id, UPPER(l.status), CAST(l.added_date AS DATE);
+
+-- Array containment filter on genres (genres @> ARRAY[...])
+CREATE INDEX IF NOT EXISTS books_genres_gin_idx ON books USING GIN (genres);
+
+-- Full text search over book name and author name (not mapped by hibernate, see BookRepository.refreshSearchVectors)
+ALTER TABLE books ADD COLUMN IF NOT EXISTS search_vector TSVECTOR;
+
+-- Author is looked up by subquery, so books without author are indexed by name
+UPDATE books b
+SET search_vector = to_tsvector('simple',
+    COALESCE(b.name, '') || ' ' || COALESCE((SELECT u.name FROM users u WHERE u.id = b.author_id), ''))
+WHERE b.search_vector IS NULL;
+
+CREATE INDEX IF NOT EXISTS books_search_vector_gin_idx ON books USING GIN (search_vector);
@@ -1,35 +1,43 @@
 package maksim.booksservice.controllers;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import maksim.booksservice.config.AppConfig;
 import maksim.booksservice.exceptions.NotFoundException;
 import maksim.booksservice.config.GlobalExceptionHandler;
 import maksim.booksservice.models.dtos.result.BookDto;
 import maksim.booksservice.models.dtos.crud.CreateBookDto;
+import maksim.booksservice.models.dtos.result.BookPagesDto;
+import maksim.booksservice.models.dtos.result.UploadDto;
+import maksim.booksservice.services.BookPageService;
 import maksim.booksservice.services.BookService;
+import maksim.booksservice.services.BookUploadService;
 import maksim.booksservice.services.CachingService;
+import maksim.booksservice.utils.bookutils.BookContinuationToken;
+import maksim.booksservice.utils.bookutils.BookFile;
+import maksim.booksservice.utils.bookutils.BookFileSender;
 import maksim.booksservice.utils.bookutils.BookSearchCriteria;
 import maksim.booksservice.utils.enums.JoinMode;
+import maksim.booksservice.utils.enums.SortField;
 import maksim.booksservice.utils.validators.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.core.io.Resource;
+import org.mockito.Spy;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -64,6 +72,15 @@ class BookControllerTest {
     @Mock
     private QueryParamsValidator queryParamsValidator;
 
+    @Mock
+    private BookUploadService bookUploadService;
+
+    @Mock
+    private BookPageService bookPageService;
+
+    @Spy
+    private BookFileSender bookFileSender = new BookFileSender(directDeliveryConfig());
+
     @InjectMocks
     private BookController bookController;
 
@@ -100,7 +117,7 @@ class BookControllerTest {
     void testGet() throws Exception {
         List<BookDto> books = Arrays.asList(new BookDto(), new BookDto(), new BookDto());
 
-        when(cachingService.contains(any(String.class))).thenReturn(false);
+        when(cachingService.getFromCache(any(String.class))).thenReturn(null);
         doNothing().when(cachingService).addToCache(any(String.class), any(), anyInt());
         doNothing().when(queryParamsValidator).queryAsMapValidating(any(Map.class));
 
@@ -114,32 +131,111 @@ class BookControllerTest {
     }
 
     @Test
-    void testGetBookFile_Success() throws IOException {
+    void testGet_FullPage_ShouldReturnContinuationToken() throws Exception {
+        BookDto lastBook = new BookDto();
+        lastBook.setId(7);
+        lastBook.setRating(4.5f);
+
+        when(cachingService.getFromCache(any(String.class))).thenReturn(null);
+        when(bookSearchCriteriaValidator.isSafeFromSqlInjection(any(BookSearchCriteria.class))).thenReturn(true);
+        when(bookService.getAllBooks(any(BookSearchCriteria.class), any(Pageable.class)))
+                .thenReturn(Arrays.asList(new BookDto(), lastBook));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books").param("pageSize", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Continuation-Token",
+                        BookContinuationToken.of(lastBook, SortField.RATING).encode()));
+    }
+
+    private static AppConfig directDeliveryConfig() {
+        AppConfig appConfig = mock(AppConfig.class);
+        when(appConfig.getBookFilesDelivery()).thenReturn("direct");
+
+        return appConfig;
+    }
+
+    private static BookFile bookFile(Path path, String content) {
+        return new BookFile(path, path.getFileName().toString(), path.getFileName().toString(), MediaType.TEXT_PLAIN_VALUE, content.length(), "abc");
+    }
+
+    @Test
+    void testGetBookFile_Success() throws Exception {
         Path tempFile = Files.createTempFile("test-file", ".txt");
         Files.write(tempFile, "Test content".getBytes());
-        File file = tempFile.toFile();
 
-        when(bookService.getFile(anyInt())).thenReturn(file);
+        when(bookService.getFile(anyInt())).thenReturn(bookFile(tempFile, "Test content"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/file"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 12))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + tempFile.getFileName() + "\""))
+                .andExpect(content().string("Test content"));
 
-        ResponseEntity<Resource> response = bookController.getBookFile(1);
+        Files.delete(tempFile);
+    }
 
-        assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(file.length(), response.getHeaders().getContentLength());
-        assertEquals("attachment; filename=\"" + file.getName() + "\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    @Test
+    void testGetBookFile_MatchingETag_ShouldReturnNotModified() throws Exception {
+        Path tempFile = Files.createTempFile("test-file", ".txt");
+        Files.write(tempFile, "Test content".getBytes());
+
+        when(bookService.getFile(anyInt())).thenReturn(bookFile(tempFile, "Test content"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/file")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
 
         Files.delete(tempFile);
     }
 
     @Test
-    void testGetBookFile_FileNotFound() {
+    void testGetBookFile_Range_ShouldReturnPartialContent() throws Exception {
+        Path tempFile = Files.createTempFile("test-file", ".txt");
+        Files.write(tempFile, "Test content".getBytes());
+
+        when(bookService.getFile(anyInt())).thenReturn(bookFile(tempFile, "Test content"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/file")
+                        .header(HttpHeaders.RANGE, "bytes=5-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-11/12"))
+                .andExpect(content().string("content"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/file")
+                        .header(HttpHeaders.RANGE, "bytes=0-3")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Test content"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/file")
+                        .header(HttpHeaders.RANGE, "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */12"));
+
+        Files.delete(tempFile);
+    }
+
+    @Test
+    void testGetBookFile_FileNotFound() throws Exception {
         when(bookService.getFile(anyInt())).thenThrow(new NotFoundException("Not found"));
 
-        NotFoundException exception = assertThrows(
-                NotFoundException.class,
-                () -> bookController.getBookFile(1)
-        );
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/file"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetBookPages_Success() throws Exception {
+        when(bookPageService.getPages(1, 2, 1))
+                .thenReturn(new BookPagesDto(1, 2, 10, List.of("Third page")));
 
-        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/books/1/pages")
+                        .param("from", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"bookId\": 1, \"from\": 2, \"totalPages\": 10, \"pages\": [\"Third page\"]}"));
     }
 
     @Test
@@ -206,6 +302,45 @@ class BookControllerTest {
         verify(bookService, never()).addBookFile(any(), anyInt());
     }
 
+    @Test
+    void testCreateBookFileUpload_Success() throws Exception {
+        when(fileValidator.isValidUpload(any())).thenReturn(true);
+        when(bookUploadService.createUpload(eq(1), any()))
+                .thenReturn(new UploadDto("a1b2", 1, "book.pdf", 300000000L, 0L));
+
+        mockMvc.perform(post("/api/v1/books/1/file/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fileName\": \"book.pdf\", \"contentType\": \"application/pdf\", \"size\": 300000000}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/v1/books/1/file/uploads/a1b2"));
+    }
+
+    @Test
+    void testCreateBookFileUpload_InvalidFile() throws Exception {
+        when(fileValidator.isValidUpload(any())).thenReturn(false);
+
+        mockMvc.perform(post("/api/v1/books/1/file/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fileName\": \"book.exe\", \"contentType\": \"application/pdf\", \"size\": 10}"))
+                .andExpect(status().isBadRequest());
+
+        verify(bookUploadService, never()).createUpload(anyInt(), any());
+    }
+
+    @Test
+    void testUploadBookFileChunk_Success() throws Exception {
+        when(bookUploadService.writeChunk(eq(1), eq("a1b2"), eq(6L), any()))
+                .thenReturn(new UploadDto("a1b2", 1, "book.txt", 11L, 11L));
+
+        mockMvc.perform(put("/api/v1/books/1/file/uploads/a1b2")
+                        .param("offset", "6")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("world".getBytes()))
+                .andExpect(status().isOk());
+
+        verify(bookUploadService).writeChunk(eq(1), eq("a1b2"), eq(6L), any());
+    }
+
     @Test
     void addAllBooksFromList_ValidRequest_ShouldReturnOk() throws Exception {
         List<CreateBookDto> bookDtos = Arrays.asList(
@@ -0,0 +1,62 @@
+package maksim.booksservice.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import maksim.booksservice.config.AppConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BookCompressionServiceTest {
+    @TempDir
+    private Path filesDirectory;
+
+    private BookFileStorage bookFileStorage;
+    private BookCompressionService bookCompressionService;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig appConfig = mock(AppConfig.class);
+        when(appConfig.getBookFilesDirectory()).thenReturn(filesDirectory.toString() + "/");
+
+        bookFileStorage = new BookFileStorage(appConfig);
+        bookCompressionService = new BookCompressionService(bookFileStorage);
+    }
+
+    @Test
+    void compress_TextFile_ShouldStoreGzipVariant() throws IOException {
+        String text = "It was the best of times, it was the worst of times.\n".repeat(200);
+        Files.writeString(filesDirectory.resolve("abc.txt"), text);
+
+        assertTrue(bookCompressionService.compress("abc.txt"));
+
+        Path gzip = bookFileStorage.resolveDerived("abc.txt", BookFileStorage.GZIP_SUFFIX);
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzip))) {
+            assertEquals(text, new String(in.readAllBytes()));
+        }
+
+        bookFileStorage.deleteIfUnused("abc.txt", location -> false, Long.MAX_VALUE);
+
+        assertFalse(Files.exists(gzip));
+    }
+
+    @Test
+    void compress_IncompressibleFile_ShouldNotStoreVariant() throws IOException {
+        byte[] randomBytes = new byte[4096];
+        new Random(42).nextBytes(randomBytes);
+        Files.write(filesDirectory.resolve("abc.txt"), randomBytes);
+
+        assertFalse(bookCompressionService.compress("abc.txt"));
+        assertFalse(Files.exists(bookFileStorage.resolveDerived("abc.txt", BookFileStorage.GZIP_SUFFIX)));
+    }
+
+}
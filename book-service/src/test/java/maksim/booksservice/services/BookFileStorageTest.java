@@ -0,0 +1,98 @@
+package maksim.booksservice.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import maksim.booksservice.config.AppConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BookFileStorageTest {
+    @TempDir
+    private Path filesDirectory;
+
+    private BookFileStorage bookFileStorage;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig appConfig = mock(AppConfig.class);
+        when(appConfig.getBookFilesDirectory()).thenReturn(filesDirectory.toString() + "/");
+
+        bookFileStorage = new BookFileStorage(appConfig);
+    }
+
+    @Test
+    void store_ShouldNameFileByContentHash() throws IOException {
+        BookFileStorage.StoredFile storedFile = bookFileStorage.store(new ByteArrayInputStream("abc".getBytes()), "txt");
+
+        String hash = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+        assertEquals(hash, storedFile.hash());
+        assertEquals(3, storedFile.size());
+        assertEquals("ba/" + hash + ".txt", storedFile.location());
+        assertEquals("abc", Files.readString(bookFileStorage.resolve(storedFile.location())));
+    }
+
+    @Test
+    void store_SameContentTwice_ShouldKeepOneFileAndNoTempFiles() throws IOException {
+        BookFileStorage.StoredFile first = bookFileStorage.store(new ByteArrayInputStream("same book".getBytes()), "pdf");
+        BookFileStorage.StoredFile second = bookFileStorage.store(new ByteArrayInputStream("same book".getBytes()), "pdf");
+
+        assertEquals(first.location(), second.location());
+
+        try (var files = Files.list(bookFileStorage.resolve(first.location()).getParent())) {
+            assertEquals(1, files.count());
+        }
+
+        try (var tempFiles = Files.list(filesDirectory.resolve("tmp"))) {
+            assertEquals(0, tempFiles.count());
+        }
+    }
+
+    @Test
+    void deleteIfUnused_UnusedFile_ShouldDeleteItWithDerivedFiles() throws IOException {
+        BookFileStorage.StoredFile storedFile = bookFileStorage.store(new ByteArrayInputStream("old book".getBytes()), "txt");
+        Files.writeString(bookFileStorage.resolveDerived(storedFile.location(), BookFileStorage.GZIP_SUFFIX), "gzip");
+        Files.writeString(bookFileStorage.resolveDerived(storedFile.location(), BookFileStorage.pageIndexSuffix(40, 4096)), "index");
+
+        assertTrue(bookFileStorage.deleteIfUnused(storedFile.location(), location -> false, Long.MAX_VALUE));
+
+        assertFalse(Files.exists(bookFileStorage.resolve(storedFile.location())));
+        assertFalse(Files.exists(bookFileStorage.resolveDerived(storedFile.location(), BookFileStorage.GZIP_SUFFIX)));
+        assertFalse(Files.exists(bookFileStorage.resolveDerived(storedFile.location(), BookFileStorage.pageIndexSuffix(40, 4096))));
+        assertEquals(List.of(), bookFileStorage.listLocations());
+    }
+
+    @Test
+    void deleteIfUnused_FileUsedByAnotherBook_ShouldKeepIt() throws IOException {
+        BookFileStorage.StoredFile storedFile = bookFileStorage.store(new ByteArrayInputStream("shared book".getBytes()), "pdf");
+
+        assertFalse(bookFileStorage.deleteIfUnused(storedFile.location(), location -> true, Long.MAX_VALUE));
+
+        assertEquals("shared book", Files.readString(bookFileStorage.resolve(storedFile.location())));
+    }
+
+    @Test
+    void deleteIfUnused_FileReusedByUploadMeanwhile_ShouldKeepIt() throws IOException {
+        BookFileStorage.StoredFile storedFile = bookFileStorage.store(new ByteArrayInputStream("book".getBytes()), "pdf");
+        Files.setLastModifiedTime(bookFileStorage.resolve(storedFile.location()), FileTime.fromMillis(0));
+        long releasedAt = System.currentTimeMillis();
+
+        // Upload with the same content reuses the file, its book isn't saved yet
+        bookFileStorage.store(new ByteArrayInputStream("book".getBytes()), "pdf");
+
+        assertFalse(bookFileStorage.deleteIfUnused(storedFile.location(), location -> false, releasedAt));
+
+        assertEquals("book", Files.readString(bookFileStorage.resolve(storedFile.location())));
+        assertEquals(List.of(storedFile.location()), bookFileStorage.listLocations());
+    }
+
+}
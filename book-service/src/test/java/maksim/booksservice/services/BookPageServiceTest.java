@@ -0,0 +1,102 @@
+package maksim.booksservice.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.models.dtos.result.BookPagesDto;
+import maksim.booksservice.models.entities.Book;
+import maksim.booksservice.repositories.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BookPageServiceTest {
+    @TempDir
+    private Path filesDirectory;
+
+    private AppConfig appConfig;
+    private BookRepository bookRepository;
+    private BookFileStorage bookFileStorage;
+    private BookPageService bookPageService;
+
+    @BeforeEach
+    void setUp() {
+        appConfig = mock(AppConfig.class);
+        when(appConfig.getBookFilesDirectory()).thenReturn(filesDirectory.toString() + "/");
+        when(appConfig.getPageLines()).thenReturn(2);
+        when(appConfig.getPageMaxBytes()).thenReturn(8);
+        when(appConfig.getPagesMaxCount()).thenReturn(3);
+
+        bookRepository = mock(BookRepository.class);
+        bookFileStorage = new BookFileStorage(appConfig);
+        bookPageService = new BookPageService(appConfig, bookRepository, bookFileStorage);
+    }
+
+    private void givenBookText(String location, String text) throws IOException {
+        Path file = filesDirectory.resolve(location);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        Book book = new Book();
+        book.setId(1);
+        book.setFilePath(location);
+
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
+    }
+
+    @Test
+    void getPages_ShouldSplitTextByLinesAndBuildIndexOnce() throws IOException {
+        givenBookText("ab/abc.txt", "a\nb\nc\nd\ne");
+
+        BookPagesDto pages = bookPageService.getPages(1, 1, 5);
+
+        assertEquals(3, pages.getTotalPages());
+        assertEquals(List.of("c\nd\n", "e"), pages.getPages());
+        assertTrue(Files.exists(bookFileStorage.resolveDerived("ab/abc.txt", BookFileStorage.pageIndexSuffix(2, 8))));
+
+        assertEquals(List.of("a\nb\n"), bookPageService.getPages(1, 0, 1).getPages());
+        assertTrue(bookPageService.getPages(1, 3, 1).getPages().isEmpty());
+    }
+
+    @Test
+    void getPages_PaginationSettingsChanged_ShouldNotUseOldIndex() throws IOException {
+        givenBookText("ab/abc.txt", "a\nb\nc\nd\ne");
+
+        assertEquals(3, bookPageService.getPages(1, 0, 1).getTotalPages());
+
+        when(appConfig.getPageLines()).thenReturn(4);
+
+        BookPagesDto pages = bookPageService.getPages(1, 0, 5);
+
+        assertEquals(2, pages.getTotalPages());
+        assertEquals(List.of("a\nb\nc\nd\n", "e"), pages.getPages());
+    }
+
+    @Test
+    void getPages_LongLine_ShouldSplitBetweenUtf8Chars() throws IOException {
+        // Every char is 2 bytes, page can't end in the middle of char
+        givenBookText("ab/abc.md", "ааааабббббввввв");
+
+        BookPagesDto pages = bookPageService.getPages(1, 0, 3);
+
+        assertEquals(4, pages.getTotalPages());
+        assertEquals(List.of("аааа", "аббб", "ббвв"), pages.getPages());
+    }
+
+    @Test
+    void getPages_PdfBook_ShouldThrowBadRequestException() throws IOException {
+        givenBookText("ab/abc.pdf", "%PDF");
+
+        assertThrows(BadRequestException.class, () -> bookPageService.getPages(1, 0, 1));
+    }
+
+}
@@ -0,0 +1,177 @@
+package maksim.booksservice.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.models.dtos.result.BookDto;
+import maksim.booksservice.models.entities.Book;
+import maksim.booksservice.models.entities.User;
+import maksim.booksservice.repositories.BookStatusJdbcRepository;
+import maksim.booksservice.utils.bookutils.BookContinuationToken;
+import maksim.booksservice.utils.bookutils.BookSearchCriteria;
+import maksim.booksservice.utils.enums.JoinMode;
+import maksim.booksservice.utils.enums.SortField;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+/*
+    Counts statements sent to database by books read endpoints, so N+1 on authors
+    shows up as failed test instead of slow listing in production
+ */
+@DataJpaTest
+@Import(BookService.class)
+@TestPropertySource(properties = {
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class BookServiceQueryCountTest {
+    private static final int BOOKS_COUNT = 5;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private AppConfig appConfig;
+
+    @MockitoBean
+    private CachingService cachingService;
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @MockitoBean
+    private BookStatusJdbcRepository bookStatusJdbcRepository;
+
+    @MockitoBean
+    private BookFileStorage bookFileStorage;
+
+    @MockitoBean
+    private BookPageService bookPageService;
+
+    @MockitoBean
+    private BookCompressionService bookCompressionService;
+
+    private Statistics statistics;
+    private int firstBookId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < BOOKS_COUNT; i++) {
+            User author = new User();
+            author.setName("author" + i);
+            author.setEmail("author" + i + "@mail.com");
+            entityManager.persist(author);
+
+            Book book = new Book();
+            book.setName("book" + i);
+            book.setAuthor(author);
+            book.setIssuedDate(new Date());
+            book.setRating(i);
+            entityManager.persist(book);
+
+            if (i == 0) {
+                firstBookId = book.getId();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private static BookSearchCriteria criteria(Map<String, String> params) {
+        return new BookSearchCriteria(params);
+    }
+
+    private static Pageable firstPage() {
+        return PageRequest.of(0, BOOKS_COUNT, Sort.by("rating", "id").descending());
+    }
+
+    @Test
+    void getAllBooks_WithAuthor_ShouldNotLoadAuthorsOneByOne() {
+        List<BookDto> books = bookService.getAllBooks(criteria(Map.of("joinModeForAuthor", "with")), firstPage());
+
+        assertEquals(BOOKS_COUNT, books.size());
+        books.forEach(book -> assertNotNull(book.getAuthor()));
+
+        // Page of ids + rows of books with authors, no entities are put into persistence context
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getAllBooks_WithAuthorAndStatuses_ShouldCountStatusesInOneQuery() {
+        List<BookDto> books = bookService.getAllBooks(
+            criteria(Map.of("joinModeForAuthor", "with", "joinModeForStatuses", "with")),
+            firstPage()
+        );
+
+        assertEquals(BOOKS_COUNT, books.size());
+
+        // Page of ids + books with authors + grouped status counters
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllBooks_WithoutAuthor_ShouldNotTouchAuthors() {
+        List<BookDto> books = bookService.getAllBooks(criteria(Map.of()), firstPage());
+
+        assertEquals(BOOKS_COUNT, books.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void getAllBooks_ScrollWithAuthor_ShouldFetchAuthorsInSameQuery() {
+        BookDto firstBook = new BookDto();
+        firstBook.setId(Integer.MAX_VALUE);
+        firstBook.setRating(Float.MAX_VALUE);
+
+        BookSearchCriteria searchCriteria = criteria(Map.of("joinModeForAuthor", "with"));
+        searchCriteria.setContinuationToken(BookContinuationToken.of(firstBook, SortField.RATING));
+
+        List<BookDto> books = bookService.getAllBooks(searchCriteria, firstPage());
+
+        assertEquals(BOOKS_COUNT, books.size());
+        books.forEach(book -> assertNotNull(book.getAuthor()));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getById_WithAuthor_ShouldUseTwoQueries() {
+        BookDto book = bookService.getById(firstBookId, JoinMode.WITH);
+
+        assertNotNull(book.getAuthor());
+
+        // Book with author + status counters
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+}
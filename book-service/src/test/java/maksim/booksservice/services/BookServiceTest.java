@@ -3,11 +3,12 @@ package maksim.booksservice.services;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Predicate;
 import maksim.booksservice.config.AppConfig;
 import maksim.booksservice.exceptions.BadRequestException;
 import maksim.booksservice.exceptions.ForbiddenException;
@@ -18,24 +19,36 @@ import maksim.booksservice.models.dtos.result.BookDto;
 import maksim.booksservice.models.entities.Book;
 import maksim.booksservice.models.entities.BookStatusLog;
 import maksim.booksservice.models.entities.User;
+import maksim.booksservice.models.projections.BookRow;
 import maksim.booksservice.repositories.BookRepository;
+import maksim.booksservice.repositories.BookStatusCounterRepository;
+import maksim.booksservice.repositories.BookStatusJdbcRepository;
 import maksim.booksservice.repositories.UserRepository;
+import maksim.booksservice.utils.Pagination;
+import maksim.booksservice.utils.bookutils.BookContinuationToken;
+import maksim.booksservice.utils.bookutils.BookFile;
 import maksim.booksservice.utils.bookutils.BookSearchCriteria;
 import maksim.booksservice.utils.enums.JoinMode;
+import maksim.booksservice.utils.enums.SortField;
 import maksim.booksservice.utils.validators.FileValidator;
+import maksim.booksservice.utils.enums.BookStatus;
+import maksim.kafkaclient.dtos.CreateStatusKafkaDto;
+import maksim.kafkaclient.dtos.UpdateStatusKafkaDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -59,6 +72,21 @@ class BookServiceTest {
     @Mock
     private CachingService cachingService;
 
+    @Mock
+    private BookStatusCounterRepository bookStatusCounterRepository;
+
+    @Mock
+    private BookStatusJdbcRepository bookStatusJdbcRepository;
+
+    @Mock
+    private BookFileStorage bookFileStorage;
+
+    @Mock
+    private BookPageService bookPageService;
+
+    @Mock
+    private BookCompressionService bookCompressionService;
+
     @InjectMocks
     private BookService bookService;
 
@@ -101,13 +129,28 @@ class BookServiceTest {
 
     @Test
     void getById_WithJoin_ShouldReturnBookDto() {
-        when(bookRepository.findByIdWithJoin(1)).thenReturn(Optional.of(book));
+        when(bookRepository.findByIdWithAuthor(1)).thenReturn(Optional.of(book));
 
         BookDto result = bookService.getById(1, JoinMode.WITH);
 
         assertNotNull(result);
         assertEquals(book.getId(), result.getId());
-        verify(bookRepository).findByIdWithJoin(1);
+        verify(bookRepository).findByIdWithAuthor(1);
+    }
+
+    @Test
+    void getById_WithJoin_ShouldTakeStatusesFromCounters() {
+        when(bookRepository.findByIdWithAuthor(1)).thenReturn(Optional.of(book));
+        when(bookStatusCounterRepository.countByBookId(1)).thenReturn(List.of(
+            statusCount(1, "READ", 5L),
+            statusCount(1, "DROP", 2L)
+        ));
+
+        BookDto result = bookService.getById(1, JoinMode.WITH);
+
+        assertEquals("5", result.getStatuses().get(0).get("count"));
+        assertEquals("0", result.getStatuses().get(1).get("count"));
+        assertEquals("2", result.getStatuses().get(2).get("count"));
     }
 
     @Test
@@ -121,9 +164,30 @@ class BookServiceTest {
         verify(bookRepository).findByIdWithoutJoin(1);
     }
 
+    @Test
+    void getById_CachedBook_ShouldNotQueryRepository() {
+        BookDto cachedBook = new BookDto(book, null, null);
+
+        when(cachingService.getBookFromCache(1, JoinMode.WITH)).thenReturn(cachedBook);
+
+        BookDto result = bookService.getById(1, JoinMode.WITH);
+
+        assertSame(cachedBook, result);
+        verify(bookRepository, never()).findByIdWithAuthor(anyInt());
+    }
+
+    @Test
+    void getById_NotCachedBook_ShouldAddItToCache() {
+        when(bookRepository.findByIdWithoutJoin(1)).thenReturn(Optional.of(book));
+
+        BookDto result = bookService.getById(1, JoinMode.WITHOUT);
+
+        verify(cachingService).addBookToCache(1, JoinMode.WITHOUT, result);
+    }
+
     @Test
     void getById_NotFound_ShouldThrowNotFoundException() {
-        when(bookRepository.findByIdWithJoin(1)).thenReturn(Optional.empty());
+        when(bookRepository.findByIdWithAuthor(1)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> bookService.getById(1, JoinMode.WITH));
     }
@@ -141,37 +205,198 @@ class BookServiceTest {
         criteria.setStatusMaxDate(new Date());
 
         Pageable pageable = Pageable.unpaged();
-        Page<Book> page = new PageImpl<>(List.of(book));
 
-        when(bookRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(page);
+        when(bookRepository.findIds(any(Specification.class), eq(pageable))).thenReturn(List.of(1));
+        when(bookRepository.findRowsByIds(List.of(1))).thenReturn(List.of(BookRow.of(book, JoinMode.WITHOUT)));
+        when(bookStatusCounterRepository.countByBookIdsAndDays(eq(List.of(1)), any(), any()))
+                .thenReturn(List.of(statusCount(1, "READING", 3L)));
 
         List<BookDto> result = bookService.getAllBooks(criteria, pageable);
 
         assertNotNull(result);
         assertFalse(result.isEmpty());
         assertEquals(1, result.size());
+        assertEquals("3", result.get(0).getStatuses().get(1).get("count"));
+    }
+
+
+    @Test
+    void getAllBooks_IdsPage_ShouldLoadBooksInPageOrder() {
+        Book secondBook = new Book();
+        secondBook.setId(2);
+        secondBook.setName("Second Book");
+        secondBook.setAuthor(user);
+
+        BookSearchCriteria criteria = new BookSearchCriteria(Map.of("joinModeForAuthor", "with"));
+        Pageable pageable = Pagination.getPageable(Map.of());
+
+        when(bookRepository.findIds(any(Specification.class), eq(pageable))).thenReturn(List.of(2, 1));
+        when(bookRepository.findRowsWithAuthorByIds(List.of(2, 1)))
+                .thenReturn(List.of(BookRow.of(book, JoinMode.WITH), BookRow.of(secondBook, JoinMode.WITH)));
+
+        List<BookDto> result = bookService.getAllBooks(criteria, pageable);
+
+        assertEquals(List.of(2, 1), result.stream().map(BookDto::getId).toList());
+        verify(bookRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void getAllBooks_WithContinuationToken_ShouldScrollInsteadOfOffset() {
+        BookDto lastBook = new BookDto(book, null, null);
+        BookSearchCriteria criteria = new BookSearchCriteria(Map.of(
+            "continuationToken", BookContinuationToken.of(lastBook, SortField.RATING).encode()
+        ));
+
+        Pageable pageable = Pagination.getPageable(Map.of());
+
+        when(bookRepository.findBy(any(Specification.class), any())).thenReturn(Window.from(List.of(book), index -> null));
+
+        List<BookDto> result = bookService.getAllBooks(criteria, pageable);
+
+        assertEquals(1, result.size());
+        verify(bookRepository, never()).findIds(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void getAllBooks_ContinuationTokenForOtherSortField_ShouldThrowBadRequestException() {
+        BookSearchCriteria criteria = new BookSearchCriteria(Map.of(
+            "continuationToken", BookContinuationToken.of(new BookDto(book, null, null), SortField.NAME).encode()
+        ));
+
+        Pageable pageable = Pagination.getPageable(Map.of());
+
+        assertThrows(BadRequestException.class, () -> bookService.getAllBooks(criteria, pageable));
+    }
+
+
+    @Test
+    void searchBooks_KeyWords_ShouldSearchByPrefixTsQuery() {
+        Pageable pageable = Pageable.ofSize(20);
+
+        when(bookRepository.searchBookIds(any(), eq(1), eq("test:* & boo:*"), eq(pageable))).thenReturn(List.of(1));
+        when(bookRepository.findRowsWithAuthorByIds(List.of(1))).thenReturn(List.of(BookRow.of(book, JoinMode.WITH)));
+
+        List<BookDto> result = bookService.searchBooks("Test boo", "Fantasy", pageable);
+
+        assertEquals(1, result.size());
     }
 
 
     @Test
     void getFile_ValidBookId_ShouldReturnFile() throws IOException {
         when(bookRepository.findById(1)).thenReturn(Optional.of(book));
-        when(appConfig.getBookFilesDirectory()).thenReturn("test-files/");
+        when(bookFileStorage.resolve("1.pdf")).thenReturn(Paths.get("test-files/1.pdf"));
 
         // Create test directory and file
         Files.createDirectories(Paths.get("test-files"));
         Files.createFile(Paths.get("test-files/1.pdf"));
 
-        File result = bookService.getFile(1);
+        BookFile result = bookService.getFile(1);
 
         assertNotNull(result);
-        assertTrue(result.exists());
+        assertTrue(Files.exists(result.path()));
+        assertEquals(0, result.size());
+        assertEquals("Test Book.pdf", result.name());
+        // sha-256 of empty file, stored so next downloads don't hash the file again
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", result.hash());
+        verify(bookRepository).save(book);
 
         // Cleanup
         Files.deleteIfExists(Paths.get("test-files/1.pdf"));
         Files.deleteIfExists(Paths.get("test-files"));
     }
 
+    @Test
+    void getFile_TextFileWithoutGzipVariant_ShouldScheduleCompression() throws IOException {
+        book.setFilePath("1.txt");
+        book.setFileSize(0L);
+        book.setFileHash("abc");
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
+        when(bookFileStorage.resolve("1.txt")).thenReturn(Paths.get("test-files/1.txt"));
+        when(bookFileStorage.resolveDerived("1.txt", BookFileStorage.GZIP_SUFFIX)).thenReturn(Paths.get("test-files/1.txt.gz"));
+
+        Files.createDirectories(Paths.get("test-files"));
+        Files.createFile(Paths.get("test-files/1.txt"));
+
+        BookFile result = bookService.getFile(1);
+
+        // Variant is served by next downloads, this one gets plain file
+        assertNull(result.gzip());
+        verify(bookCompressionService).compressAsync("1.txt");
+
+        Files.deleteIfExists(Paths.get("test-files/1.txt"));
+        Files.deleteIfExists(Paths.get("test-files"));
+    }
+
+    @Test
+    void addBookFile_ValidFile_ShouldStoreContentAddressedFile() throws IOException {
+        MultipartFile file = new MockMultipartFile("file", "test.PDF", "application/pdf", "Test content".getBytes());
+        String location = "ab/abc.pdf";
+
+        when(appConfig.getBookFilesDirectory()).thenReturn("test-files/");
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
+        when(bookFileStorage.store(any(InputStream.class), eq("pdf")))
+                .thenReturn(new BookFileStorage.StoredFile(location, 12, "abc"));
+        when(bookFileStorage.resolve(location)).thenReturn(Paths.get("test-files", location));
+
+        bookService.addBookFile(file, 1);
+
+        assertEquals(location, book.getFilePath());
+        assertEquals(12, book.getFileSize());
+        assertEquals("abc", book.getFileHash());
+        assertEquals("application/pdf", book.getFileContentType());
+        verify(bookRepository).save(book);
+        verify(cachingService).invalidateBook(1);
+        // Previous file is deleted if it isn't used by other books anymore
+        verify(bookFileStorage).deleteIfUnused(eq("1.pdf"), any(), anyLong());
+    }
+
+    @Test
+    void addBookFile_PreviousFileSharedWithOtherBook_ShouldCheckItsReferences() throws IOException {
+        MultipartFile file = new MockMultipartFile("file", "test.pdf", "application/pdf", "Test content".getBytes());
+
+        when(appConfig.getBookFilesDirectory()).thenReturn("test-files/");
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
+        when(bookFileStorage.store(any(InputStream.class), eq("pdf")))
+                .thenReturn(new BookFileStorage.StoredFile("ab/abc.pdf", 12, "abc"));
+        when(bookFileStorage.resolve(anyString())).thenReturn(Paths.get("test-files/ab/abc.pdf"));
+        when(bookRepository.existsByFilePath("1.pdf")).thenReturn(true);
+
+        bookService.addBookFile(file, 1);
+
+        ArgumentCaptor<Predicate<String>> isUsed = ArgumentCaptor.forClass(Predicate.class);
+        verify(bookFileStorage).deleteIfUnused(eq("1.pdf"), isUsed.capture(), anyLong());
+        assertTrue(isUsed.getValue().test("1.pdf"));
+    }
+
+    @Test
+    void deleteUnusedFiles_ShouldDeleteOnlyUnreferencedFiles() throws IOException {
+        when(bookFileStorage.listLocations()).thenReturn(List.of("ab/abc.pdf", "cd/cde.pdf"));
+        when(bookRepository.existsByFilePath("ab/abc.pdf")).thenReturn(true);
+        when(bookRepository.existsByFilePath("cd/cde.pdf")).thenReturn(false);
+
+        bookService.deleteUnusedFiles();
+
+        verify(bookFileStorage).deleteIfUnused(eq("cd/cde.pdf"), any(), anyLong());
+        verify(bookFileStorage, never()).deleteIfUnused(eq("ab/abc.pdf"), any(), anyLong());
+    }
+
+    @Test
+    void addBookFile_TextFile_ShouldBuildPageIndexAndCompressFile() throws IOException {
+        MultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "Test content".getBytes());
+
+        when(appConfig.getBookFilesDirectory()).thenReturn("test-files/");
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
+        when(bookFileStorage.store(any(InputStream.class), eq("txt")))
+                .thenReturn(new BookFileStorage.StoredFile("ab/abc.txt", 12, "abc"));
+        when(bookFileStorage.resolve(anyString())).thenReturn(Paths.get("test-files/ab/abc.txt"));
+
+        bookService.addBookFile(file, 1);
+
+        verify(bookPageService).buildIndex("ab/abc.txt");
+        verify(bookCompressionService).compressAsync("ab/abc.txt");
+    }
+
     @Test
     void testAddBookFile_InvalidFileName() {
         MultipartFile file = new MockMultipartFile(
@@ -217,6 +442,7 @@ class BookServiceTest {
         assertNotNull(result);
         assertEquals(createBookDto.getName(), result.getName());
         verify(bookRepository).save(any(Book.class));
+        verify(bookRepository).refreshSearchVectors(anyCollection());
     }
 
     @Test
@@ -228,14 +454,14 @@ class BookServiceTest {
 
 
     @Test
-    void deleteBook_ValidId_ShouldDeleteBook() {
+    void deleteBook_ValidId_ShouldDeleteBook() throws IOException {
         when(bookRepository.findById(1)).thenReturn(Optional.of(book));
-        when(appConfig.getBookFilesDirectory()).thenReturn("test-files/");
 
         bookService.deleteBook(1);
 
         verify(bookRepository).delete(book);
         verify(cachingService).deleteBook(1);
+        verify(bookFileStorage).deleteIfUnused(eq("1.pdf"), any(), anyLong());
     }
 
     @Test
@@ -312,4 +538,101 @@ class BookServiceTest {
             bookService.addListOfBooks(1, bookDtos)
         );
     }
+
+
+
+    @Test
+    void applyLikesDeltas_ShouldRunOneUpdatePerBook() {
+        when(bookRepository.incrementLikes(anyInt(), anyInt())).thenReturn(1);
+
+        bookService.applyLikesDeltas(Map.of(1, 5, 2, -1, 3, 0));
+
+        verify(bookRepository).incrementLikes(1, 5);
+        verify(bookRepository).incrementLikes(2, -1);
+        verify(bookRepository, never()).incrementLikes(eq(3), anyInt());
+        verify(bookRepository, never()).save(any());
+        verify(cachingService).invalidateBook(1);
+        verify(cachingService).invalidateBook(2);
+    }
+
+    @Test
+    void applyLikesDeltas_InTransaction_ShouldInvalidateBooksAfterCommit() {
+        when(bookRepository.incrementLikes(anyInt(), anyInt())).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            bookService.applyLikesDeltas(Map.of(1, 5));
+
+            verify(cachingService, never()).invalidateBook(anyInt());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(cachingService).invalidateBook(1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void applyLikesDeltas_BookNotFound_ShouldNotThrow() {
+        when(bookRepository.incrementLikes(1, 1)).thenReturn(0);
+
+        Map<Integer, Integer> likesDeltas = Map.of(1, 1);
+
+        assertDoesNotThrow(() -> bookService.applyLikesDeltas(likesDeltas));
+    }
+
+    @Test
+    void addStatuses_ShouldBatchLogsAndFoldCounters() {
+        when(bookRepository.findExistingIds(anyCollection())).thenReturn(List.of(1));
+
+        bookService.addStatuses(
+            List.of(new CreateStatusKafkaDto(2, 1, "reading"), new CreateStatusKafkaDto(3, 1, "read")),
+            List.of(new UpdateStatusKafkaDto(4, 1, "read"))
+        );
+
+        ArgumentCaptor<List<BookStatusLog>> logsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bookStatusJdbcRepository).insertLogs(logsCaptor.capture());
+        assertEquals(3, logsCaptor.getValue().size());
+
+        ArgumentCaptor<Map<Integer, Map<BookStatus, Long>>> countersCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(bookStatusJdbcRepository).incrementCounters(any(), countersCaptor.capture());
+        assertEquals(Map.of(BookStatus.READING, 1L, BookStatus.READ, 2L), countersCaptor.getValue().get(1));
+
+        verify(cachingService).invalidateBook(1);
+    }
+
+    @Test
+    void addStatuses_UnknownBookOrStatus_ShouldSkipEvent() {
+        when(bookRepository.findExistingIds(anyCollection())).thenReturn(List.of(1));
+
+        bookService.addStatuses(
+            List.of(new CreateStatusKafkaDto(2, 5, "read"), new CreateStatusKafkaDto(2, 1, "unknown")),
+            List.of()
+        );
+
+        verify(bookStatusJdbcRepository, never()).insertLogs(any());
+        verify(bookStatusJdbcRepository, never()).incrementCounters(any(), any());
+    }
+
+
+    private static BookStatusCounterRepository.StatusCount statusCount(int bookId, String status, long count) {
+        return new BookStatusCounterRepository.StatusCount() {
+            @Override
+            public Integer getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
 }
@@ -0,0 +1,151 @@
+package maksim.booksservice.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.exceptions.ConflictException;
+import maksim.booksservice.exceptions.NotFoundException;
+import maksim.booksservice.models.dtos.crud.CreateUploadDto;
+import maksim.booksservice.models.dtos.result.UploadDto;
+import maksim.booksservice.repositories.BookRepository;
+import maksim.booksservice.repositories.BookStatusCounterRepository;
+import maksim.booksservice.repositories.BookStatusJdbcRepository;
+import maksim.booksservice.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.client.RestTemplate;
+
+class BookUploadServiceTest {
+    @TempDir
+    private Path filesDirectory;
+
+    @TempDir
+    private Path uploadsDirectory;
+
+    private AppConfig appConfig;
+    private BookRepository bookRepository;
+    private BookService bookService;
+    private BookFileStorage bookFileStorage;
+    private BookUploadService bookUploadService;
+
+    @BeforeEach
+    void setUp() {
+        appConfig = mock(AppConfig.class);
+        when(appConfig.getBookFilesDirectory()).thenReturn(filesDirectory.toString() + "/");
+        when(appConfig.getUploadsDirectory()).thenReturn(uploadsDirectory.toString() + "/");
+        when(appConfig.getUploadMaxChunkSize()).thenReturn(8L);
+        when(appConfig.getUploadExpirationTime()).thenReturn(60000L);
+
+        bookRepository = mock(BookRepository.class);
+        bookService = mock(BookService.class);
+
+        when(bookRepository.existsById(1)).thenReturn(true);
+
+        bookFileStorage = new BookFileStorage(appConfig);
+        bookUploadService = new BookUploadService(appConfig, bookRepository, bookService, bookFileStorage);
+    }
+
+    private UploadDto createUpload(long size) {
+        return bookUploadService.createUpload(1, new CreateUploadDto("book.txt", "text/plain", size));
+    }
+
+    private UploadDto writeChunk(UploadDto upload, long offset, String chunk) {
+        return bookUploadService.writeChunk(1, upload.getUploadId(), offset, new ByteArrayInputStream(chunk.getBytes()));
+    }
+
+    @Test
+    void completeUpload_ResentAndResumedChunks_ShouldStoreAssembledFile() throws IOException {
+        UploadDto upload = createUpload(11);
+
+        assertEquals(6, writeChunk(upload, 0, "Hello ").getOffset());
+        // Retried chunk is written over the same bytes
+        assertEquals(6, writeChunk(upload, 0, "Hello ").getOffset());
+        assertEquals(11, writeChunk(upload, 6, "world").getOffset());
+        assertEquals(11, bookUploadService.getUpload(1, upload.getUploadId()).getOffset());
+
+        bookUploadService.completeUpload(1, upload.getUploadId());
+
+        ArgumentCaptor<BookFileStorage.StoredFile> storedFile = ArgumentCaptor.forClass(BookFileStorage.StoredFile.class);
+        verify(bookService).attachBookFile(eq(1), storedFile.capture(), eq("text/plain"));
+
+        assertEquals(11, storedFile.getValue().size());
+        assertEquals("Hello world", Files.readString(filesDirectory.resolve(storedFile.getValue().location())));
+
+        try (var uploads = Files.list(uploadsDirectory)) {
+            assertEquals(0, uploads.count());
+        }
+    }
+
+    @Test
+    void writeChunk_OffsetAfterReceivedBytes_ShouldThrowConflictException() {
+        UploadDto upload = createUpload(11);
+
+        writeChunk(upload, 0, "Hello ");
+
+        assertThrows(ConflictException.class, () -> writeChunk(upload, 7, "orld"));
+    }
+
+    @Test
+    void writeChunk_ChunkBiggerThanMaxChunkSize_ShouldThrowBadRequestException() {
+        UploadDto upload = createUpload(11);
+
+        assertThrows(BadRequestException.class, () -> writeChunk(upload, 0, "Hello world"));
+    }
+
+    @Test
+    void completeUpload_NotAllBytesReceived_ShouldThrowConflictException() {
+        UploadDto upload = createUpload(11);
+
+        writeChunk(upload, 0, "Hello ");
+
+        assertThrows(ConflictException.class, () -> bookUploadService.completeUpload(1, upload.getUploadId()));
+        verify(bookService, never()).attachBookFile(anyInt(), any(), any());
+    }
+
+    @Test
+    void getUpload_OtherBookOrInvalidId_ShouldThrowNotFoundException() {
+        UploadDto upload = createUpload(11);
+
+        assertThrows(NotFoundException.class, () -> bookUploadService.getUpload(2, upload.getUploadId()));
+        assertThrows(NotFoundException.class, () -> bookUploadService.getUpload(1, "../../etc/passwd"));
+    }
+
+    @Test
+    void deleteUnusedFiles_UploadInProgress_ShouldKeepUploadFiles() throws IOException {
+        UploadDto upload = createUpload(11);
+        writeChunk(upload, 0, "Hello ");
+
+        // Session file is written only when upload is created, so it looks long unused
+        try (var uploadFiles = Files.walk(uploadsDirectory)) {
+            for (Path file : uploadFiles.filter(Files::isRegularFile).toList()) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+            }
+        }
+
+        BookService filesCleaningService = new BookService(
+            bookRepository, mock(UserRepository.class), appConfig, mock(CachingService.class), mock(RestTemplate.class),
+            mock(BookStatusJdbcRepository.class), mock(BookStatusCounterRepository.class), bookFileStorage,
+            mock(BookPageService.class), mock(BookCompressionService.class)
+        );
+
+        filesCleaningService.deleteUnusedFiles();
+
+        assertEquals(6, bookUploadService.getUpload(1, upload.getUploadId()).getOffset());
+        assertEquals(11, writeChunk(upload, 6, "world").getOffset());
+
+        bookUploadService.completeUpload(1, upload.getUploadId());
+
+        verify(bookService).attachBookFile(eq(1), any(), eq("text/plain"));
+    }
+
+}
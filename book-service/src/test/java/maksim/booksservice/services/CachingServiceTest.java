@@ -1,23 +1,36 @@
 package maksim.booksservice.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import maksim.booksservice.config.AppConfig;
 import maksim.booksservice.models.dtos.result.BookDto;
+import maksim.booksservice.utils.enums.JoinMode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
 
 class CachingServiceTest {
-    @InjectMocks
+    @Mock
+    private AppConfig appConfig;
+
     private CachingService cachingService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+
+        when(appConfig.getCacheMaxEntries()).thenReturn(10L);
+        when(appConfig.getCacheMaxBytes()).thenReturn(1024L * 1024L);
+        when(appConfig.getCacheBookMaxEntries()).thenReturn(100L);
+        when(appConfig.getCacheBookExpirationTime()).thenReturn(10000L);
+
+        cachingService = new CachingService(appConfig, new SimpleMeterRegistry());
     }
 
     @Test
@@ -29,8 +42,53 @@ class CachingServiceTest {
             cachingService.addToCache(url1 + i, books, 10000);
         }
 
-        assertFalse(cachingService.contains(url1 + "0"));
-        assertTrue(cachingService.contains(url1 + "10"));
+        cachingService.checkAndDeleteInvalidCaches();
+
+        int cachedAmount = 0;
+        for (int i = 0; i < 11; i++) {
+            if (cachingService.contains(url1 + i)) {
+                cachedAmount++;
+            }
+        }
+
+        assertEquals(10, cachedAmount);
+        assertEquals(10, cachingService.size());
+    }
+
+    @Test
+    void addToCache_ShouldKeepFrequentlyUsedItem() {
+        List<BookDto> books = List.of(new BookDto());
+        String hotUrl = "hot";
+
+        for (int i = 0; i < 10; i++) {
+            cachingService.addToCache("warm" + i, books, 10000);
+        }
+        cachingService.checkAndDeleteInvalidCaches();
+
+        cachingService.addToCache(hotUrl, books, 10000);
+
+        // Caffeine records reads in a small lossy buffer drained asynchronously, so it is drained
+        // by hand to make sure every read (and every eviction below) is accounted for
+        for (int i = 0; i < 20; i++) {
+            cachingService.getFromCache(hotUrl);
+
+            if (i % 5 == 4) {
+                cachingService.checkAndDeleteInvalidCaches();
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            cachingService.addToCache("cold" + i, books, 10000);
+            cachingService.checkAndDeleteInvalidCaches();
+        }
+
+        assertTrue(cachingService.contains(hotUrl));
+        assertTrue(cachingService.size() <= 10);
+    }
+
+    @Test
+    void getFromCache_ShouldReturnNullForMissingItem() {
+        assertNull(cachingService.getFromCache("missing"));
     }
 
     @Test
@@ -92,6 +150,24 @@ class CachingServiceTest {
         assertEquals(0, cachingService.getFromCache(url2).size());
     }
 
+    @Test
+    void addToCache_ReplacedList_ShouldDropIndexOfBooksNotInNewList() {
+        BookDto book1 = new BookDto();
+        book1.setId(1);
+        BookDto book2 = new BookDto();
+        book2.setId(2);
+
+        cachingService.addToCache("url", List.of(book1, book2), 10000);
+        cachingService.addToCache("url", List.of(book2), 10000);
+
+        assertEquals(1, cachingService.indexSize());
+
+        cachingService.invalidateCache("url");
+
+        // Removal listener runs asynchronously
+        await().atMost(5, TimeUnit.SECONDS).until(() -> cachingService.indexSize() == 0);
+    }
+
     @Test
     void updateBook_ShouldUpdateBookInAllCaches() {
         BookDto originalBook = new BookDto();
@@ -111,6 +187,89 @@ class CachingServiceTest {
         assertEquals(updatedBook.getName(), cachingService.getFromCache(url).getFirst().getName());
     }
 
+    @Test
+    void updateBook_ShouldSwapSnapshotInsteadOfMutatingDtos() {
+        BookDto originalBook = new BookDto();
+        originalBook.setId(1);
+        originalBook.setName("Old Name");
+
+        BookDto otherBook = new BookDto();
+        otherBook.setId(2);
+        otherBook.setName("Other Name");
+
+        BookDto updatedBook = new BookDto();
+        updatedBook.setId(1);
+        updatedBook.setName("New Name");
+
+        cachingService.addToCache("url1", new ArrayList<>(List.of(originalBook, otherBook)), 10000);
+        cachingService.addToCache("url2", new ArrayList<>(List.of(otherBook)), 10000);
+        List<BookDto> untouchedList = cachingService.getFromCache("url2");
+
+        cachingService.updateBook(1, updatedBook);
+
+        assertEquals("Old Name", originalBook.getName());
+        assertEquals("New Name", cachingService.getFromCache("url1").getFirst().getName());
+        assertSame(otherBook, cachingService.getFromCache("url1").get(1));
+        assertSame(untouchedList, cachingService.getFromCache("url2"));
+        assertThrows(UnsupportedOperationException.class, () -> cachingService.getFromCache("url1").clear());
+    }
+
+    @Test
+    void deleteBook_ShouldNotTouchOtherCaches() {
+        BookDto book1 = new BookDto();
+        book1.setId(1);
+        BookDto book2 = new BookDto();
+        book2.setId(2);
+
+        cachingService.addToCache("url1", List.of(book1), 10000);
+        cachingService.addToCache("url2", List.of(book2), 10000);
+        List<BookDto> untouchedList = cachingService.getFromCache("url2");
+
+        cachingService.deleteBook(1);
+        cachingService.deleteBook(3);
+
+        assertTrue(cachingService.getFromCache("url1").isEmpty());
+        assertSame(untouchedList, cachingService.getFromCache("url2"));
+    }
+
+    @Test
+    void getBookFromCache_ShouldReturnBookForSameJoinModeOnly() {
+        BookDto book = new BookDto();
+        book.setId(1);
+
+        cachingService.addBookToCache(1, JoinMode.WITH, book);
+
+        assertSame(book, cachingService.getBookFromCache(1, JoinMode.WITH));
+        assertNull(cachingService.getBookFromCache(1, JoinMode.WITHOUT));
+        assertNull(cachingService.getBookFromCache(2, JoinMode.WITH));
+    }
+
+    @Test
+    void invalidateBook_ShouldRemoveBookForAllJoinModes() {
+        BookDto book = new BookDto();
+        book.setId(1);
+
+        cachingService.addBookToCache(1, JoinMode.WITH, book);
+        cachingService.addBookToCache(1, JoinMode.WITHOUT, book);
+
+        cachingService.invalidateBook(1);
+
+        assertNull(cachingService.getBookFromCache(1, JoinMode.WITH));
+        assertNull(cachingService.getBookFromCache(1, JoinMode.WITHOUT));
+    }
+
+    @Test
+    void updateBook_ShouldInvalidateBookById() {
+        BookDto book = new BookDto();
+        book.setId(1);
+
+        cachingService.addBookToCache(1, JoinMode.WITHOUT, book);
+
+        cachingService.updateBook(1, book);
+
+        assertNull(cachingService.getBookFromCache(1, JoinMode.WITHOUT));
+    }
+
     @Test
     void checkAndDeleteInvalidCaches_ShouldRemoveExpiredItems() {
         List<BookDto> books = List.of(new BookDto());
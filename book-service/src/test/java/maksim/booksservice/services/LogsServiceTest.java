@@ -0,0 +1,192 @@
+package maksim.booksservice.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.exceptions.AcceptedException;
+import maksim.booksservice.exceptions.FileException;
+import maksim.booksservice.exceptions.NotFoundException;
+import maksim.booksservice.exceptions.TooManyRequestsException;
+import maksim.booksservice.utils.enums.LogRequestStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+class LogsServiceTest {
+    @TempDir
+    private Path directory;
+
+    private AppConfig appConfig;
+    private LogsService logsService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path logsDirectory = Files.createDirectories(directory.resolve("logs"));
+
+        Files.writeString(logsDirectory.resolve("app.2025-01-01.log"), """
+            2025-01-01 23:59:58 [/] INFO  [main] m.b.A - day one
+            """);
+        Files.writeString(logsDirectory.resolve("app.2025-01-02.log"), """
+            2025-01-02 00:00:01 [/] INFO  [main] m.b.A - day two
+            2025-01-02 12:00:00 [/] INFO  [main] m.b.A - day two noon
+            """);
+        Files.writeString(logsDirectory.resolve("app.log"), """
+            2025-01-03 08:00:00 [/] INFO  [main] m.b.A - day three
+            """);
+
+        appConfig = mock(AppConfig.class);
+        when(appConfig.getLogsDirectory()).thenReturn(logsDirectory.toString());
+        when(appConfig.getRequestedLogsDirectory()).thenReturn(directory.resolve("requested").toString());
+        when(appConfig.getLogsMaxExports()).thenReturn(1);
+
+        logsService = new LogsService(appConfig, Runnable::run);
+    }
+
+    private String download(String id) throws IOException {
+        Path logsFile = logsService.takeLogsFile(id);
+
+        try {
+            return Files.readString(logsFile);
+        } finally {
+            logsService.releaseLogsFile(logsFile);
+        }
+    }
+
+    @Test
+    void requestLogsFile_ShouldCollectRecordsFromFilesInTimeOrder() throws IOException {
+        String id = logsService.requestLogsFile(LocalDateTime.of(2025, 1, 1, 23, 0), LocalDateTime.of(2025, 1, 3, 9, 0));
+
+        assertEquals(LogRequestStatus.READY, logsService.getStatus(id));
+        assertEquals("""
+            2025-01-01 23:59:58 [/] INFO  [main] m.b.A - day one
+            2025-01-02 00:00:01 [/] INFO  [main] m.b.A - day two
+            2025-01-02 12:00:00 [/] INFO  [main] m.b.A - day two noon
+            2025-01-03 08:00:00 [/] INFO  [main] m.b.A - day three
+            """, download(id));
+
+        // Export is deleted after it was sent
+        assertThrows(NotFoundException.class, () -> logsService.takeLogsFile(id));
+
+        try (var requested = Files.list(directory.resolve("requested"))) {
+            assertEquals(0, requested.count());
+        }
+    }
+
+    @Test
+    void requestLogsFile_ShouldSkipRecordsOutOfRange() throws IOException {
+        String id = logsService.requestLogsFile(LocalDateTime.of(2025, 1, 2, 1, 0), LocalDateTime.of(2025, 1, 2, 23, 0));
+
+        assertEquals("""
+            2025-01-02 12:00:00 [/] INFO  [main] m.b.A - day two noon
+            """, download(id));
+    }
+
+    @Test
+    void requestLogsFile_OverlappingFiles_ShouldMergeRecordsByTimestamp() throws IOException {
+        Files.writeString(directory.resolve("logs").resolve("instance-2.log"), """
+            2025-01-02 00:00:01 [/] INFO  [main] m.b.B - other day two
+            2025-01-02 06:00:00 [/] ERROR [main] m.b.B - other morning
+            java.lang.IllegalStateException: boom
+            2025-01-02 18:00:00 [/] INFO  [main] m.b.B - other evening
+            """);
+
+        String id = logsService.requestLogsFile(LocalDateTime.of(2025, 1, 2, 0, 0), LocalDateTime.of(2025, 1, 2, 23, 0));
+
+        assertEquals("""
+            2025-01-02 00:00:01 [/] INFO  [main] m.b.A - day two
+            2025-01-02 00:00:01 [/] INFO  [main] m.b.B - other day two
+            2025-01-02 06:00:00 [/] ERROR [main] m.b.B - other morning
+            java.lang.IllegalStateException: boom
+            2025-01-02 12:00:00 [/] INFO  [main] m.b.A - day two noon
+            2025-01-02 18:00:00 [/] INFO  [main] m.b.B - other evening
+            """, download(id));
+    }
+
+    @Test
+    void requestLogsFile_MaxExportsInProgress_ShouldThrowTooManyRequestsException() {
+        // Tasks are never run, so the first export keeps its permit
+        LogsService busyLogsService = new LogsService(appConfig, task -> { });
+
+        String id = busyLogsService.requestLogsFile(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 3, 0, 0));
+
+        assertEquals(LogRequestStatus.IN_PROCESS, busyLogsService.getStatus(id));
+        assertThrows(AcceptedException.class, () -> busyLogsService.takeLogsFile(id));
+        assertThrows(TooManyRequestsException.class,
+            () -> busyLogsService.requestLogsFile(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 3, 0, 0)));
+    }
+
+    @Test
+    void requestLogsFile_CopyingFailed_ShouldDeletePartialFile() throws IOException {
+        // Export task is run, its copying tasks can't be executed
+        AtomicBoolean exportStarted = new AtomicBoolean(false);
+        LogsService failingLogsService = new LogsService(appConfig, task -> {
+            if (exportStarted.getAndSet(true)) {
+                throw new IllegalStateException("Executor was shut down");
+            }
+
+            task.run();
+        });
+
+        String id = failingLogsService.requestLogsFile(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 3, 0, 0));
+
+        assertEquals(LogRequestStatus.FAILED, failingLogsService.getStatus(id));
+
+        try (var requested = Files.list(directory.resolve("requested"))) {
+            assertEquals(0, requested.count());
+        }
+
+        assertThrows(FileException.class, () -> failingLogsService.takeLogsFile(id));
+    }
+
+    @Test
+    void deleteExpiredLogsFiles_ShouldDeleteNotTakenExportsAndLeftFiles() throws IOException {
+        String id = logsService.requestLogsFile(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 3, 0, 0));
+        Path leftFile = Files.writeString(directory.resolve("requested").resolve("left-by-previous-run.log"), "old");
+        Files.setLastModifiedTime(leftFile, FileTime.fromMillis(0));
+
+        // Everything finished before now is expired
+        when(appConfig.getLogsExpirationTime()).thenReturn(-1000L);
+
+        logsService.deleteExpiredLogsFiles();
+
+        assertNull(logsService.getStatus(id));
+        assertThrows(NotFoundException.class, () -> logsService.takeLogsFile(id));
+
+        try (var requested = Files.list(directory.resolve("requested"))) {
+            assertEquals(0, requested.count());
+        }
+    }
+
+    @Test
+    void deleteExpiredLogsFiles_ShouldKeepNotExpiredExports() throws IOException {
+        String id = logsService.requestLogsFile(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 3, 0, 0));
+        when(appConfig.getLogsExpirationTime()).thenReturn(3600000L);
+
+        logsService.deleteExpiredLogsFiles();
+
+        assertEquals(LogRequestStatus.READY, logsService.getStatus(id));
+        assertFalse(download(id).isEmpty());
+    }
+
+    @Test
+    void constructor_MaxExportsNotLowerThanCorePoolSize_ShouldThrowIllegalStateException() {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(1);
+
+        assertThrows(IllegalStateException.class, () -> new LogsService(appConfig, pool));
+
+        pool.setCorePoolSize(2);
+
+        assertDoesNotThrow(() -> new LogsService(appConfig, pool));
+    }
+
+}
@@ -0,0 +1,61 @@
+package maksim.booksservice.utils;
+
+import maksim.booksservice.utils.bookutils.BookCacheKey;
+import maksim.booksservice.utils.bookutils.BookSearchCriteria;
+import org.junit.jupiter.api.Test;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCacheKeyTest {
+
+    private String keyOf(Map<String, String> params) {
+        return BookCacheKey.of(new BookSearchCriteria(params), Pagination.getPageable(params));
+    }
+
+    @Test
+    void of_ReorderedParams_ReturnsSameKey() {
+        Map<String, String> params1 = new LinkedHashMap<>();
+        params1.put("name", "book");
+        params1.put("genres", "Horror,Adventure");
+        params1.put("authorId", "16");
+
+        Map<String, String> params2 = new LinkedHashMap<>();
+        params2.put("authorId", "16");
+        params2.put("genres", "Adventure,Horror");
+        params2.put("name", "book");
+
+        assertEquals(keyOf(params1), keyOf(params2));
+    }
+
+    @Test
+    void of_SpelledOutDefaults_ReturnsSameKey() {
+        Map<String, String> params1 = new LinkedHashMap<>();
+        params1.put("joinModeForStatuses", "with");
+
+        Map<String, String> params2 = new LinkedHashMap<>();
+        params2.put("joinModeForStatuses", "WITH");
+        params2.put("statusMinDate", "1990-01-01");
+        params2.put("statusMaxDate", "2222-01-01");
+        params2.put("joinModeForAuthor", "without");
+        params2.put("sortField", "rating");
+        params2.put("sortDirection", "desc");
+        params2.put("pageNum", "0");
+        params2.put("pageSize", "20");
+
+        assertEquals(keyOf(params1), keyOf(params2));
+        assertEquals(keyOf(Map.of()), keyOf(Map.of("pageSize", "20")));
+    }
+
+    @Test
+    void of_DifferentQueries_ReturnsDifferentKeys() {
+        assertNotEquals(keyOf(Map.of()), keyOf(Map.of("pageNum", "1")));
+        assertNotEquals(keyOf(Map.of()), keyOf(Map.of("sortDirection", "asc")));
+        assertNotEquals(keyOf(Map.of("rating", "3")), keyOf(Map.of("rating", "3", "ratingOperator", "less")));
+        assertNotEquals(
+            keyOf(Map.of("joinModeForStatuses", "with")),
+            keyOf(Map.of("joinModeForStatuses", "with", "statusMinDate", "2020-01-01"))
+        );
+    }
+}
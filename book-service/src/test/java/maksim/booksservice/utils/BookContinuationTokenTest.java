@@ -0,0 +1,52 @@
+package maksim.booksservice.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Date;
+import maksim.booksservice.exceptions.BadRequestException;
+import maksim.booksservice.models.dtos.result.BookDto;
+import maksim.booksservice.utils.bookutils.BookContinuationToken;
+import maksim.booksservice.utils.enums.SortField;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+
+class BookContinuationTokenTest {
+
+    private BookDto lastBook() {
+        BookDto book = new BookDto();
+        book.setId(42);
+        book.setName("Some | name");
+        book.setRating(3.7f);
+        book.setRatingsCount(15);
+        book.setIssuedDate(new Date(1700000000000L));
+
+        return book;
+    }
+
+    @Test
+    void decode_EncodedToken_ShouldRestoreTypedSortKey() {
+        for (SortField sortField : SortField.values()) {
+            BookContinuationToken token = BookContinuationToken.of(lastBook(), sortField);
+
+            BookContinuationToken decoded = BookContinuationToken.decode(token.encode());
+
+            assertEquals(sortField, decoded.getSortField());
+            assertEquals(token.getLastValue(), decoded.getLastValue());
+            assertEquals(42, decoded.getLastId());
+        }
+    }
+
+    @Test
+    void toScrollPosition_ShouldSeekBySortPropertyAndId() {
+        KeysetScrollPosition position = BookContinuationToken.of(lastBook(), SortField.RATINGS_COUNT).toScrollPosition();
+
+        assertEquals(15, position.getKeys().get("ratingCount"));
+        assertEquals(42, position.getKeys().get("id"));
+    }
+
+    @Test
+    void decode_InvalidToken_ShouldThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> BookContinuationToken.decode("not a token"));
+        assertThrows(BadRequestException.class, () -> BookContinuationToken.decode("cmF0aW5nfGFiY3wx"));
+    }
+
+}
@@ -0,0 +1,120 @@
+package maksim.booksservice.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import maksim.booksservice.config.AppConfig;
+import maksim.booksservice.utils.bookutils.BookFile;
+import maksim.booksservice.utils.bookutils.BookFileSender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class BookFileSenderTest {
+    private final BookFile file = new BookFile(
+        Path.of("app/statics/my book.pdf"), "my book.pdf", "Моя книга.pdf", "application/pdf", 100, "abc"
+    );
+
+    @TempDir
+    private Path filesDirectory;
+
+    private static BookFileSender sender(String deliveryMode) {
+        AppConfig appConfig = mock(AppConfig.class);
+        when(appConfig.getBookFilesDelivery()).thenReturn(deliveryMode);
+        when(appConfig.getBookFilesInternalLocation()).thenReturn("/internal/book-files/");
+
+        return new BookFileSender(appConfig);
+    }
+
+    private BookFile textFileWithGzip() throws Exception {
+        Path path = Files.writeString(filesDirectory.resolve("abc.txt"), "plain text");
+        Path gzipPath = Files.writeString(filesDirectory.resolve("abc.txt.gz"), "gzip");
+
+        return new BookFile(path, "ab/abc.txt", "my book.txt", "text/plain", 10, "abc",
+            new BookFile.Variant(gzipPath, "ab/abc.txt.gz", 4));
+    }
+
+    private static BookFileSender nginxSender() {
+        return sender("nginx");
+    }
+
+    @Test
+    void send_NginxMode_ShouldOnlyRedirectToInternalLocation() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        nginxSender().send(file, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("/internal/book-files/my%20book.pdf", response.getHeader("X-Accel-Redirect"));
+        assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("application/pdf", response.getContentType());
+        assertEquals(
+            "attachment; filename=\"=?UTF-8?Q?=D0=9C=D0=BE=D1=8F_=D0=BA=D0=BD=D0=B8=D0=B3=D0=B0.pdf?=\"; "
+                + "filename*=UTF-8''%D0%9C%D0%BE%D1%8F%20%D0%BA%D0%BD%D0%B8%D0%B3%D0%B0.pdf",
+            response.getHeader(HttpHeaders.CONTENT_DISPOSITION)
+        );
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void send_NginxModeMatchingETag_ShouldAnswerNotModifiedWithoutRedirect() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        nginxSender().send(file, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertNull(response.getHeader("X-Accel-Redirect"));
+    }
+
+    @Test
+    void send_AcceptsGzip_ShouldSendPrecompressedVariant() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sender("direct").send(textFileWithGzip(), request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertEquals("\"abc-gzip\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("text/plain", response.getContentType());
+        assertEquals("gzip", response.getContentAsString());
+    }
+
+    @Test
+    void send_GzipRefused_ShouldSendIdentityWithVary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "*, gzip;q=0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sender("direct").send(textFileWithGzip(), request, response);
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("plain text", response.getContentAsString());
+    }
+
+    @Test
+    void send_NginxModeAcceptsGzip_ShouldRedirectToVariant() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        nginxSender().send(textFileWithGzip(), request, response);
+
+        assertEquals("/internal/book-files/ab/abc.txt.gz", response.getHeader("X-Accel-Redirect"));
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+}
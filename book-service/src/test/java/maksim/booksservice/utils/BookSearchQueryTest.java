@@ -0,0 +1,26 @@
+package maksim.booksservice.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import maksim.booksservice.utils.bookutils.BookSearchQuery;
+import org.junit.jupiter.api.Test;
+
+class BookSearchQueryTest {
+
+    @Test
+    void toPrefixTsQuery_Words_ShouldBuildPrefixConjunction() {
+        assertEquals("harr:* & pot:*", BookSearchQuery.toPrefixTsQuery("Harr  Pot"));
+    }
+
+    @Test
+    void toPrefixTsQuery_TsQuerySyntax_ShouldBeDropped() {
+        assertEquals("a:* & b:*", BookSearchQuery.toPrefixTsQuery("a:* | !b & a"));
+    }
+
+    @Test
+    void toPrefixTsQuery_BlankOrOnlySymbols_ShouldReturnNull() {
+        assertNull(BookSearchQuery.toPrefixTsQuery(""));
+        assertNull(BookSearchQuery.toPrefixTsQuery(null));
+        assertNull(BookSearchQuery.toPrefixTsQuery(" &|! "));
+    }
+
+}
@@ -0,0 +1,65 @@
+package maksim.booksservice.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import maksim.booksservice.utils.logutils.TimeOrderedLogFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimeOrderedLogFileTest {
+    private static final String LOG = """
+        2025-01-01 10:00:00 [/] INFO  [main] m.b.A - first
+        2025-01-01 10:00:05 [/] ERROR [main] m.b.A - second
+        java.lang.IllegalStateException: boom
+        \tat maksim.booksservice.A.run(A.java:1)
+        2025-01-01 10:00:05 [/] INFO  [main] m.b.A - third
+        2025-01-01 10:01:00 [/] INFO  [main] m.b.A - fourth
+        2025-01-01 10:02:00 [/] INFO  [main] m.b.A - half writ""";
+
+    @TempDir
+    private Path logsDirectory;
+
+    private String extract(LocalDateTime minDate, LocalDateTime maxDate) throws IOException {
+        Path path = Files.writeString(logsDirectory.resolve("app.log"), LOG);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (TimeOrderedLogFile logFile = TimeOrderedLogFile.open(path)) {
+            logFile.transferTo(logFile.range(minDate, maxDate), Channels.newChannel(out));
+        }
+
+        return out.toString();
+    }
+
+    @Test
+    void range_ShouldIncludeBoundsAndContinuationLines() throws IOException {
+        String result = extract(LocalDateTime.of(2025, 1, 1, 10, 0, 5), LocalDateTime.of(2025, 1, 1, 10, 0, 5));
+
+        assertEquals("""
+            2025-01-01 10:00:05 [/] ERROR [main] m.b.A - second
+            java.lang.IllegalStateException: boom
+            \tat maksim.booksservice.A.run(A.java:1)
+            2025-01-01 10:00:05 [/] INFO  [main] m.b.A - third
+            """, result);
+    }
+
+    @Test
+    void range_OutsideOfFile_ShouldBeEmpty() throws IOException {
+        assertEquals("", extract(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 12, 31, 0, 0)));
+        assertEquals("", extract(LocalDateTime.of(2025, 1, 1, 10, 3), LocalDateTime.of(2025, 1, 2, 0, 0)));
+    }
+
+    @Test
+    void range_WholeFile_ShouldLeaveOutHalfWrittenLine() throws IOException {
+        String result = extract(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 2, 0, 0));
+
+        assertTrue(result.startsWith("2025-01-01 10:00:00"));
+        assertTrue(result.endsWith("fourth\n"));
+    }
+
+}
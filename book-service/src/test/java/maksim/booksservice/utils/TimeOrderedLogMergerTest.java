@@ -0,0 +1,61 @@
+package maksim.booksservice.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import maksim.booksservice.utils.logutils.TimeOrderedLogFile;
+import maksim.booksservice.utils.logutils.TimeOrderedLogMerger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimeOrderedLogMergerTest {
+    @TempDir
+    private Path logsDirectory;
+
+    @Test
+    void merge_OutOfOrderRecordBeforeRange_ShouldCopyEveryRecordOnce() throws IOException {
+        // Records of concurrent threads can be written a bit out of order ("10:40" before "10:01")
+        String first = """
+            2025-01-02 09:00:00 [/] INFO  [main] m.b.A - a0
+            2025-01-02 09:30:00 [/] INFO  [main] m.b.A - a1
+            2025-01-02 10:40:00 [/] INFO  [main] m.b.A - a2
+            2025-01-02 10:01:00 [/] INFO  [main] m.b.A - a3
+            2025-01-02 10:50:00 [/] INFO  [main] m.b.A - a4
+            2025-01-02 10:51:00 [/] INFO  [main] m.b.A - a5
+            2025-01-02 10:52:00 [/] INFO  [main] m.b.A - a6
+            """;
+        String second = """
+            2025-01-02 10:05:00 [/] INFO  [main] m.b.B - b0
+            """;
+
+        Path output = logsDirectory.resolve("export.log");
+
+        try (TimeOrderedLogFile firstFile = TimeOrderedLogFile.open(Files.writeString(logsDirectory.resolve("first.log"), first));
+             TimeOrderedLogFile secondFile = TimeOrderedLogFile.open(Files.writeString(logsDirectory.resolve("second.log"), second));
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            // Range starts after the out of order record, search for the end of the first run finds it
+            List<TimeOrderedLogMerger.Source> sources = List.of(
+                new TimeOrderedLogMerger.Source(firstFile, new TimeOrderedLogFile.Range(first.indexOf("2025-01-02 10:01"), first.length())),
+                new TimeOrderedLogMerger.Source(secondFile, new TimeOrderedLogFile.Range(0, second.length()))
+            );
+
+            assertEquals(first.length() - first.indexOf("2025-01-02 10:01") + second.length(),
+                TimeOrderedLogMerger.merge(sources, out, Runnable::run));
+        }
+
+        assertEquals("""
+            2025-01-02 10:01:00 [/] INFO  [main] m.b.A - a3
+            2025-01-02 10:05:00 [/] INFO  [main] m.b.B - b0
+            2025-01-02 10:50:00 [/] INFO  [main] m.b.A - a4
+            2025-01-02 10:51:00 [/] INFO  [main] m.b.A - a5
+            2025-01-02 10:52:00 [/] INFO  [main] m.b.A - a6
+            """, Files.readString(output));
+    }
+
+}
@@ -17,10 +17,23 @@ public class VisitKafkaDto {
 
     private Long count;
 
+    private Long errors;
+
+    // Compressed latency histogram of these visits (LatencyHistograms), base64
+    private String latencies;
+
     public VisitKafkaDto(String method, String serviceName, Long count) {
         this.method = method;
         this.serviceName = serviceName;
         this.count = count;
     }
 
+    public VisitKafkaDto(String method, String serviceName, Long count, Long errors, String latencies) {
+        this.method = method;
+        this.serviceName = serviceName;
+        this.count = count;
+        this.errors = errors;
+        this.latencies = latencies;
+    }
+
 }
@@ -0,0 +1,52 @@
+package maksim.kafkaclient.visits;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import org.HdrHistogram.Histogram;
+
+/*
+    Latency histograms of visits: HdrHistogram of microseconds with 2 significant digits (~1% error),
+    latencies longer than an hour are counted as an hour. Histograms are sent and stored compressed,
+    any number of them can be merged without losing precision
+ */
+public final class LatencyHistograms {
+    public static final long HIGHEST_TRACKABLE_VALUE = 3_600_000_000L;
+    public static final int SIGNIFICANT_DIGITS = 2;
+
+    private LatencyHistograms() { }
+
+    public static Histogram create() {
+        return new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    }
+
+    public static long toMicros(long nanos) {
+        return Math.min(Math.max(nanos / 1000, 0), HIGHEST_TRACKABLE_VALUE);
+    }
+
+    public static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    public static Histogram decode(byte[] encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), HIGHEST_TRACKABLE_VALUE);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid latency histogram", e);
+        }
+    }
+
+    // Histograms are sent in json as base64 strings
+    public static String encodeToString(Histogram histogram) {
+        return Base64.getEncoder().encodeToString(encode(histogram));
+    }
+
+    public static Histogram decodeFromString(String encoded) {
+        return decode(Base64.getDecoder().decode(encoded));
+    }
+
+}
@@ -0,0 +1,200 @@
+package maksim.kafkaclient.visits;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import maksim.kafkaclient.dtos.VisitKafkaDto;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+    Counts visits of controller methods with their latencies and hands them to publisher in batches.
+    Visits are counted with striped counters (LongAdder per service and method) and latencies are recorded
+    by wait-free HdrHistogram recorders, so request threads never take a lock. Counters are flushed on
+    a background thread every flushInterval ms, earlier when flushSize visits were counted, and once more
+    on close, so visits of quiet services aren't lost
+ */
+public class VisitMeter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(VisitMeter.class);
+
+    private static final long CLOSE_TIMEOUT = 5000;
+
+    private static final class VisitKey {
+        private final String serviceName;
+        private final String method;
+
+        VisitKey(String serviceName, String method) {
+            this.serviceName = serviceName;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof VisitKey)) {
+                return false;
+            }
+
+            VisitKey other = (VisitKey) o;
+
+            return serviceName.equals(other.serviceName) && method.equals(other.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceName, method);
+        }
+    }
+
+    private static final class MethodMeter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Recorder latencies = new Recorder(LatencyHistograms.HIGHEST_TRACKABLE_VALUE, LatencyHistograms.SIGNIFICANT_DIGITS);
+
+        // Used by flush only: recycled interval histogram and latencies which weren't published yet
+        private Histogram interval;
+        private final Histogram unsent = LatencyHistograms.create();
+    }
+
+    private final Map<VisitKey, MethodMeter> meters = new ConcurrentHashMap<>();
+    private final LongAdder pending = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    private final long flushSize;
+    private final Consumer<List<VisitKafkaDto>> publisher;
+    private final ScheduledExecutorService flusher;
+
+    public VisitMeter(long flushSize, long flushInterval, Consumer<List<VisitKafkaDto>> publisher) {
+        this.flushSize = flushSize;
+        this.publisher = publisher;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VisitMeterThread");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String serviceName, String method, long latencyNanos, boolean failed) {
+        VisitKey key = new VisitKey(serviceName, method);
+        MethodMeter meter = meters.get(key);
+
+        if (meter == null) {
+            meter = meters.computeIfAbsent(key, k -> new MethodMeter());
+        }
+
+        meter.latencies.recordValue(LatencyHistograms.toMicros(latencyNanos));
+        meter.count.increment();
+
+        if (failed) {
+            meter.errors.increment();
+        }
+
+        pending.increment();
+
+        // Only one request thread schedules the flush, the others go on
+        if (pending.sum() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    // Runs on the flusher thread, and on the closing thread after the flusher was stopped
+    public synchronized void flush() {
+        flushRequested.set(false);
+
+        List<VisitKafkaDto> visits = new ArrayList<>();
+        List<MethodMeter> published = new ArrayList<>();
+        long total = 0;
+
+        for (Map.Entry<VisitKey, MethodMeter> entry : meters.entrySet()) {
+            MethodMeter meter = entry.getValue();
+
+            // Counters aren't reset, so visits counted meanwhile stay in them for the next flush
+            long count = meter.count.sum();
+
+            // Recorder swaps its histograms, values recorded meanwhile go to the next interval
+            meter.interval = meter.latencies.getIntervalHistogram(meter.interval);
+            meter.unsent.add(meter.interval);
+
+            if (count > 0) {
+                meter.count.add(-count);
+
+                long errors = meter.errors.sum();
+                meter.errors.add(-errors);
+
+                visits.add(new VisitKafkaDto(
+                    entry.getKey().method,
+                    entry.getKey().serviceName,
+                    count,
+                    errors,
+                    LatencyHistograms.encodeToString(meter.unsent)
+                ));
+                published.add(meter);
+                total += count;
+            }
+        }
+
+        if (visits.isEmpty()) {
+            return;
+        }
+
+        pending.add(-total);
+
+        try {
+            publisher.accept(visits);
+
+            for (MethodMeter meter : published) {
+                meter.unsent.reset();
+            }
+
+            logger.trace("VisitMeter method: flush | {} visits of {} methods were published", total, visits.size());
+        } catch (RuntimeException e) {
+            logger.warn("VisitMeter method: flush | Visits weren't published, they are kept for the next flush: {}", e.getMessage());
+
+            // Latencies are still in unsent histograms
+            for (int i = 0; i < visits.size(); i++) {
+                published.get(i).count.add(visits.get(i).getCount());
+                published.get(i).errors.add(visits.get(i).getErrors());
+            }
+
+            pending.add(total);
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+
+        try {
+            if (!flusher.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("VisitMeter method: close | Flusher wasn't stopped in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+    }
+
+}
@@ -0,0 +1,129 @@
+package maksim.kafkaclient.visits;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import maksim.kafkaclient.dtos.VisitKafkaDto;
+import org.junit.jupiter.api.Test;
+
+class VisitMeterTest {
+    // Meters are flushed by tests only
+    private static final long NEVER = 3600000;
+
+    @Test
+    void flush_PublisherFailed_ShouldPublishVisitsWithNextFlush() {
+        List<List<VisitKafkaDto>> published = new ArrayList<>();
+        AtomicBoolean brokerDown = new AtomicBoolean(true);
+
+        VisitMeter meter = new VisitMeter(Long.MAX_VALUE, NEVER, visits -> {
+            if (brokerDown.get()) {
+                throw new IllegalStateException("Broker is down");
+            }
+
+            published.add(visits);
+        });
+
+        meter.record("book-service", "getBook", 1_000_000, false);
+        meter.record("book-service", "getBook", 3_000_000, true);
+        meter.flush();
+
+        assertTrue(published.isEmpty());
+
+        meter.record("book-service", "getBook", 2_000_000, false);
+        brokerDown.set(false);
+        meter.flush();
+
+        assertEquals(1, published.size());
+
+        VisitKafkaDto visit = published.get(0).get(0);
+
+        assertEquals("book-service", visit.getServiceName());
+        assertEquals("getBook", visit.getMethod());
+        assertEquals(3, visit.getCount());
+        assertEquals(1, visit.getErrors());
+        assertEquals(3, LatencyHistograms.decodeFromString(visit.getLatencies()).getTotalCount());
+
+        // Published visits aren't sent again
+        meter.flush();
+        meter.close();
+
+        assertEquals(1, published.size());
+    }
+
+    @Test
+    void record_ConcurrentlyWithFailingFlushes_ShouldPublishEveryVisitOnce() throws InterruptedException {
+        int threads = 4;
+        int visitsPerThread = 20000;
+
+        // Flushes are run by this thread only, so published visits aren't shared
+        List<VisitKafkaDto> published = new ArrayList<>();
+        AtomicInteger publishes = new AtomicInteger();
+
+        // Every third publish fails, its visits have to come with one of the next ones
+        VisitMeter meter = new VisitMeter(Long.MAX_VALUE, NEVER, visits -> {
+            if (publishes.incrementAndGet() % 3 == 0) {
+                throw new IllegalStateException("Broker is down");
+            }
+
+            published.addAll(visits);
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> recorders = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            String method = "method-" + (i % 2);
+
+            Thread recorder = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int j = 0; j < visitsPerThread; j++) {
+                    meter.record("book-service", method, 1_000_000 + j, j % 10 == 0);
+                }
+            });
+
+            recorder.start();
+            recorders.add(recorder);
+        }
+
+        start.countDown();
+
+        while (recorders.stream().anyMatch(Thread::isAlive)) {
+            meter.flush();
+        }
+
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+
+        // The last publishes can fail as well, so flushing goes on until everything was sent
+        while (published.stream().mapToLong(VisitKafkaDto::getCount).sum() < (long) threads * visitsPerThread) {
+            meter.flush();
+        }
+
+        meter.close();
+
+        long count = 0;
+        long errors = 0;
+        long latencies = 0;
+
+        for (VisitKafkaDto visit : published) {
+            count += visit.getCount();
+            errors += visit.getErrors();
+            latencies += LatencyHistograms.decodeFromString(visit.getLatencies()).getTotalCount();
+        }
+
+        assertEquals((long) threads * visitsPerThread, count);
+        assertEquals((long) threads * visitsPerThread / 10, errors);
+        assertEquals((long) threads * visitsPerThread, latencies);
+    }
+
+}
@@ -20,6 +20,7 @@ import maksim.reviewsservice.models.dtos.CreateReviewDto;
 import maksim.reviewsservice.models.dtos.UpdateReviewDto;
 import maksim.reviewsservice.services.ReviewService;
 import maksim.reviewsservice.utils.Pagination;
+import maksim.reviewsservice.utils.ReviewContinuationToken;
 import maksim.reviewsservice.utils.enums.JoinMode;
 import maksim.reviewsservice.utils.enums.SelectionCriteria;
 import maksim.reviewsservice.utils.enums.SortDirection;
@@ -29,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -48,6 +50,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class ReviewController {
     private static final Logger logger = LoggerFactory.getLogger(ReviewController.class);
 
+    private static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
     private final ReviewService reviewService;
     private final Pagination pagination;
     private final StringValidators stringValidators;
@@ -199,7 +203,12 @@ public class ReviewController {
             @RequestParam(name = "sortDir", required = false, defaultValue = "desc")
             @NotBlank(message = "Sort direction shouldn't be empty string")
             @Size(min = 2, max = 10, message = "Too much chars for sort direction")
-            String sortStrDirection
+            String sortStrDirection,
+
+            @Parameter(description = "X-Continuation-Token of previous page, replaces page number", required = false)
+            @RequestParam(name = "continuationToken", required = false)
+            @Size(max = 100, message = "Too much chars for continuation token")
+            String continuationToken
     ) {
         SortField sortField = SortField.fromValue(sortStrField);
         SortDirection sortDirection = SortDirection.fromValue(sortStrDirection);
@@ -214,11 +223,21 @@ public class ReviewController {
                \s""",
                 joinMode, selectionCriteria, id, pageable);
 
-        List<ReviewDto> reviews = reviewService.getAllByBookOrUserId(id, selectionCriteria, joinMode, pageable);
+        List<ReviewDto> reviews = (continuationToken == null)
+                ? reviewService.getAllByBookOrUserId(id, selectionCriteria, joinMode, pageable)
+                : reviewService.scrollByBookOrUserId(
+                    id, selectionCriteria, joinMode, ReviewContinuationToken.decode(continuationToken), pageable
+                );
 
         logger.trace("Controller method return: getReviewById | Result: found {} items", reviews.size());
 
-        return new ResponseEntity<>(reviews, HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+
+        if (!reviews.isEmpty() && reviews.size() == pageSize) {
+            headers.add(CONTINUATION_TOKEN_HEADER, ReviewContinuationToken.of(reviews.get(reviews.size() - 1), sortField).encode());
+        }
+
+        return new ResponseEntity<>(reviews, headers, HttpStatus.OK);
     }
 
 
@@ -8,6 +8,7 @@ import lombok.Setter;
 import lombok.ToString;
 import maksim.reviewsservice.models.entities.Review;
 import maksim.reviewsservice.models.entities.User;
+import maksim.reviewsservice.models.projections.ReviewRow;
 import maksim.reviewsservice.utils.enums.JoinMode;
 
 import java.util.HashSet;
@@ -64,5 +65,18 @@ public class ReviewDto {
         }
     }
 
+    public ReviewDto(ReviewRow row, JoinMode joinMode, Set<UserDto> likedUsers) {
+        this.id = row.id();
+        this.text = row.text();
+        this.rating = row.rating();
+        this.likes = row.likes();
+        this.bookId = row.bookId();
+
+        if (joinMode == JoinMode.WITH) {
+            this.likedUsers = likedUsers;
+            this.author = new UserDto(row.authorId(), row.authorName(), row.authorProfilePicPath(), row.authorEmail());
+        }
+    }
+
     public ReviewDto() {}
 }
@@ -32,5 +32,12 @@ public class UserDto {
         this.email = user.getEmail();
     }
 
+    public UserDto(Integer id, String name, String profilePicPath, String email) {
+        this.id = id;
+        this.name = name;
+        this.profilePicPath = profilePicPath;
+        this.email = email;
+    }
+
     public UserDto() {}
 }
@@ -0,0 +1,12 @@
+package maksim.reviewsservice.models.projections;
+
+/*
+    User who liked the review, liked users of a whole page are selected by one query
+ */
+public record LikedUserRow(
+    Integer reviewId,
+    Integer id,
+    String name,
+    String profilePicPath,
+    String email
+) {}
@@ -0,0 +1,34 @@
+package maksim.reviewsservice.models.projections;
+
+import maksim.reviewsservice.models.entities.Review;
+import maksim.reviewsservice.utils.enums.JoinMode;
+
+/*
+    Read-only row of reviews list, selected by jpql constructor expression.
+    Author columns are null when the author wasn't joined
+ */
+public record ReviewRow(
+    Integer id,
+    String text,
+    Integer rating,
+    Integer likes,
+    Integer bookId,
+    Integer authorId,
+    String authorName,
+    String authorProfilePicPath,
+    String authorEmail
+) {
+    public ReviewRow(Integer id, String text, Integer rating, Integer likes, Integer bookId) {
+        this(id, text, rating, likes, bookId, null, null, null, null);
+    }
+
+    public static ReviewRow of(Review review, JoinMode joinMode) {
+        if (joinMode != JoinMode.WITH || review.getAuthor() == null) {
+            return new ReviewRow(review.getId(), review.getText(), review.getRating(), review.getLikes(), review.getBookId());
+        }
+
+        return new ReviewRow(review.getId(), review.getText(), review.getRating(), review.getLikes(), review.getBookId(),
+            review.getAuthor().getId(), review.getAuthor().getName(),
+            review.getAuthor().getProfilePicPath(), review.getAuthor().getEmail());
+    }
+}
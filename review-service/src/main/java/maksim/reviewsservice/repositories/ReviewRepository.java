@@ -1,12 +1,21 @@
 package maksim.reviewsservice.repositories;
 
 import jakarta.ws.rs.QueryParam;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import maksim.reviewsservice.models.entities.Review;
+import maksim.reviewsservice.models.projections.LikedUserRow;
+import maksim.reviewsservice.models.projections.ReviewRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ReviewRepository extends JpaRepository<Review, Integer> {
 
@@ -17,17 +26,44 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
     Optional<Review> findByIdWithJoin(@QueryParam("id") int id);
 
 
-    @Query("SELECT r FROM Review r JOIN r.author a WHERE a.id = :userId")
-    List<Review> findByUserIdWithoutJoin(@QueryParam("userId") int userId, Pageable pageable);
+    @Query("SELECT new maksim.reviewsservice.models.projections.ReviewRow(r.id, r.text, r.rating, r.likes, r.bookId) " +
+            " FROM Review r WHERE r.author.id = :userId")
+    List<ReviewRow> findRowsByUserId(@Param("userId") int userId, Pageable pageable);
 
-    @Query("SELECT r FROM Review r JOIN FETCH r.author a LEFT JOIN FETCH r.likedUsers u WHERE a.id = :userId")
-    List<Review> findByUserIdWithJoin(@QueryParam("userId") int userId, Pageable pageable);
+    @Query("SELECT new maksim.reviewsservice.models.projections.ReviewRow(" +
+            " r.id, r.text, r.rating, r.likes, r.bookId, a.id, a.name, a.profilePicPath, a.email) " +
+            " FROM Review r JOIN r.author a WHERE a.id = :userId")
+    List<ReviewRow> findRowsWithAuthorByUserId(@Param("userId") int userId, Pageable pageable);
 
 
-    @Query("SELECT r FROM Review r WHERE r.bookId = :bookId")
-    List<Review> findByBookIdWithoutJoin(@QueryParam("bookId") int bookId, Pageable pageable);
+    @Query("SELECT new maksim.reviewsservice.models.projections.ReviewRow(r.id, r.text, r.rating, r.likes, r.bookId) " +
+            " FROM Review r WHERE r.bookId = :bookId")
+    List<ReviewRow> findRowsByBookId(@Param("bookId") int bookId, Pageable pageable);
 
-    @Query("SELECT r FROM Review r JOIN FETCH r.author a LEFT JOIN FETCH r.likedUsers u WHERE r.bookId = :bookId")
-    List<Review> findByBookIdWithJoin(@QueryParam("bookId") int bookId, Pageable pageable);
+    @Query("SELECT new maksim.reviewsservice.models.projections.ReviewRow(" +
+            " r.id, r.text, r.rating, r.likes, r.bookId, a.id, a.name, a.profilePicPath, a.email) " +
+            " FROM Review r JOIN r.author a WHERE r.bookId = :bookId")
+    List<ReviewRow> findRowsWithAuthorByBookId(@Param("bookId") int bookId, Pageable pageable);
+
+
+    // Liked users of the whole page in one query, so limit of reviews page stays in sql
+    @Query("SELECT new maksim.reviewsservice.models.projections.LikedUserRow(r.id, u.id, u.name, u.profilePicPath, u.email) " +
+            " FROM Review r JOIN r.likedUsers u WHERE r.id IN :reviewIds")
+    List<LikedUserRow> findLikedUsersRows(@Param("reviewIds") Collection<Integer> reviewIds);
+
+
+    /*
+        Keyset scrolling, next window is selected right after (sort key, id) of the position.
+        Liked users aren't in entity graph, collection fetch would make hibernate apply limit in memory
+     */
+    Window<Review> findByAuthorId(Integer userId, ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    Window<Review> findWithJoinByAuthorId(Integer userId, ScrollPosition position, Sort sort, Limit limit);
+
+    Window<Review> findByBookId(Integer bookId, ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    Window<Review> findWithJoinByBookId(Integer bookId, ScrollPosition position, Sort sort, Limit limit);
 
 }
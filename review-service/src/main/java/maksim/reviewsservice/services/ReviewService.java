@@ -1,26 +1,39 @@
 package maksim.reviewsservice.services;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import maksim.reviewsservice.exceptions.BadRequestException;
 import maksim.reviewsservice.exceptions.ConflictException;
 import maksim.reviewsservice.exceptions.NotFoundException;
 import maksim.reviewsservice.models.dtos.ReviewDto;
+import maksim.reviewsservice.models.dtos.UserDto;
 import maksim.reviewsservice.models.entities.Review;
 import maksim.reviewsservice.models.entities.User;
+import maksim.reviewsservice.models.projections.ReviewRow;
 import maksim.reviewsservice.models.dtos.CreateLikeDto;
 import maksim.reviewsservice.models.dtos.CreateReviewDto;
 import maksim.reviewsservice.models.dtos.UpdateReviewDto;
 import maksim.reviewsservice.repositories.ReviewRepository;
 import maksim.reviewsservice.repositories.UserRepository;
+import maksim.reviewsservice.utils.ReviewContinuationToken;
 import maksim.reviewsservice.utils.enums.JoinMode;
 import maksim.reviewsservice.utils.enums.SelectionCriteria;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ReviewService {
@@ -64,23 +77,22 @@ public class ReviewService {
         return new ReviewDto(review.get(), mode);
     }
 
+    @Transactional(readOnly = true)
     public List<ReviewDto> getAllByBookOrUserId(int id, SelectionCriteria criteria, JoinMode mode, Pageable pageable) {
         logger.trace("Method enter: getAllByBookOrUserId | Params: id {} ; mode {} ; criteria {}", id, mode, criteria);
 
-        List<Review> reviewsEntities = switch (criteria) {
+        List<ReviewRow> reviewsRows = switch (criteria) {
             case BOOK -> switch (mode) {
-                case WITH -> reviewRepository.findByBookIdWithJoin(id, pageable);
-                case WITHOUT -> reviewRepository.findByBookIdWithoutJoin(id, pageable);
+                case WITH -> reviewRepository.findRowsWithAuthorByBookId(id, pageable);
+                case WITHOUT -> reviewRepository.findRowsByBookId(id, pageable);
             };
             case USER -> switch (mode) {
-                case WITH -> reviewRepository.findByUserIdWithJoin(id, pageable);
-                case WITHOUT -> reviewRepository.findByUserIdWithoutJoin(id, pageable);
+                case WITH -> reviewRepository.findRowsWithAuthorByUserId(id, pageable);
+                case WITHOUT -> reviewRepository.findRowsByUserId(id, pageable);
             };
         };
 
-        List<ReviewDto> reviews = new ArrayList<>(reviewsEntities.size());
-
-        reviewsEntities.forEach(review -> reviews.add(new ReviewDto(review, mode)));
+        List<ReviewDto> reviews = toDtos(reviewsRows, mode);
 
         logger.trace("Method return: getAllByBookOrUserId | found {} items", reviews.size());
 
@@ -88,6 +100,66 @@ public class ReviewService {
     }
 
 
+    @Transactional(readOnly = true)
+    public List<ReviewDto> scrollByBookOrUserId(
+        int id,
+        SelectionCriteria criteria,
+        JoinMode mode,
+        ReviewContinuationToken token,
+        Pageable pageable
+    ) {
+        logger.trace("Method enter: scrollByBookOrUserId | Params: id {} ; mode {} ; criteria {}", id, mode, criteria);
+
+        Sort.Order firstOrder = pageable.getSort().iterator().next();
+
+        if (!token.getSortField().getValue().equals(firstOrder.getProperty())) {
+            throw new BadRequestException("Continuation token doesn't match sort field");
+        }
+
+        ScrollPosition position = token.toScrollPosition();
+        Limit limit = Limit.of(pageable.getPageSize());
+
+        Window<Review> reviewsEntities = switch (criteria) {
+            case BOOK -> switch (mode) {
+                case WITH -> reviewRepository.findWithJoinByBookId(id, position, pageable.getSort(), limit);
+                case WITHOUT -> reviewRepository.findByBookId(id, position, pageable.getSort(), limit);
+            };
+            case USER -> switch (mode) {
+                case WITH -> reviewRepository.findWithJoinByAuthorId(id, position, pageable.getSort(), limit);
+                case WITHOUT -> reviewRepository.findByAuthorId(id, position, pageable.getSort(), limit);
+            };
+        };
+
+        List<ReviewDto> reviews = toDtos(
+            reviewsEntities.map(review -> ReviewRow.of(review, mode)).getContent(),
+            mode
+        );
+
+        logger.trace("Method return: scrollByBookOrUserId | found {} items", reviews.size());
+
+        return reviews;
+    }
+
+    private List<ReviewDto> toDtos(List<ReviewRow> rows, JoinMode mode) {
+        Map<Integer, Set<UserDto>> likedUsers = new HashMap<>();
+
+        if (mode == JoinMode.WITH && !rows.isEmpty()) {
+            reviewRepository.findLikedUsersRows(rows.stream().map(ReviewRow::id).toList())
+                .forEach(row -> likedUsers.computeIfAbsent(row.reviewId(), reviewId -> new HashSet<>())
+                    .add(new UserDto(row.id(), row.name(), row.profilePicPath(), row.email()))
+                );
+        }
+
+        List<ReviewDto> reviews = new ArrayList<>(rows.size());
+
+        rows.forEach(row -> reviews.add(
+            new ReviewDto(row, mode, likedUsers.getOrDefault(row.id(), new HashSet<>()))
+        ));
+
+        return reviews;
+    }
+
+
     public ReviewDto addReview(CreateReviewDto reviewData) {
         logger.trace("Method enter: addReview | Params: bookId {} ; userId {} ; rating {}",
                 reviewData.getBookId(), reviewData.getUserId(), reviewData.getRating());
@@ -114,6 +186,7 @@ public class ReviewService {
         return new ReviewDto(newReview, JoinMode.WITHOUT);
     }
 
+    @Transactional
     public void addLike(CreateLikeDto likeData) {
         logger.trace("Method enter: addLike | Params: reviewId {} ; userId {}",
                 likeData.getReviewId(), likeData.getUserId());
@@ -1,63 +1,60 @@
 package maksim.reviewsservice.services.kafka.producers;
 
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import maksim.reviewsservice.config.AppConfig;
 import maksim.kafkaclient.dtos.ListOfNewVisitsKafkaDto;
-import maksim.kafkaclient.dtos.VisitKafkaDto;
+import maksim.kafkaclient.visits.VisitMeter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class VisitEventsProducer {
     private static final Logger logger = LoggerFactory.getLogger(VisitEventsProducer.class);
 
-    private final KafkaTemplate<String, Object> kafkaTemplateJsonObjectValue;
-    private final AppConfig appConfig;
-    private final CopyOnWriteArrayList<VisitKafkaDto> visits;
-    private final AtomicLong count;
+    private static final long SEND_TIMEOUT = 10000;
+
+    private final VisitMeter visitMeter;
 
     @Autowired
     public VisitEventsProducer(
             KafkaTemplate<String, Object> kafkaTemplateJsonObjectValue,
             AppConfig appConfig
     ) {
-        this.kafkaTemplateJsonObjectValue = kafkaTemplateJsonObjectValue;
-        this.appConfig = appConfig;
-
-        visits = new CopyOnWriteArrayList<>();
-        count = new AtomicLong(0L);
-    }
-
-    synchronized public void addAndPublishVisit(String serviceName, String methodName) {
-        logger.trace("KafkaProducer: method enter: addAndPublishVisit | Current list size {}", count.get() + 1);
-
-        boolean isFound = false;
-
-        for (VisitKafkaDto visit : visits) {
-            if (visit.getMethod().equals(methodName)) {
-                visit.setCount(visit.getCount() + 1L);
-                isFound = true;
+        // Visits are sent by the meter's background thread, request threads only count them
+        visitMeter = new VisitMeter(appConfig.getVisitsUploadSize(), appConfig.getVisitsUploadInterval(), visits -> {
+            /*
+                Send is asynchronous, so the meter waits for its result: visits which weren't sent
+                are kept by the meter for the next flush (sent late ones can be counted twice)
+             */
+            try {
+                kafkaTemplateJsonObjectValue
+                    .send(appConfig.getKafkaNewVisitTopic(), new ListOfNewVisitsKafkaDto(visits))
+                    .get(SEND_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IllegalStateException("Visits sending was interrupted", e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("Visits weren't sent: " + e.getMessage(), e);
             }
-        }
-
-        if (!isFound) {
-            visits.add(new VisitKafkaDto(methodName, serviceName, 1L));
-        }
 
-        long updatedCount = count.incrementAndGet();
+            logger.info("KafkaProducer: method: publishVisits | Message was published");
+        });
+    }
 
-        if (updatedCount >= 500L) {
-            kafkaTemplateJsonObjectValue.send(appConfig.getKafkaNewVisitTopic(), new ListOfNewVisitsKafkaDto(visits));
-            visits.clear();
-            count.set(0L);
+    public void addAndPublishVisit(String serviceName, String methodName, long latencyNanos, boolean failed) {
+        visitMeter.record(serviceName, methodName, latencyNanos, failed);
+    }
 
-            logger.info("KafkaProducer: method: addAndPublishVisit | Message was published");
-        } else {
-            logger.trace("KafkaProducer: method end: addAndPublishVisit | Visit was added");
-        }
+    // Kafka template is destroyed after this bean, so the last visits are still sent
+    @PreDestroy
+    public void flushVisits() {
+        visitMeter.close();
     }
 }
@@ -11,8 +11,9 @@ import org.springframework.stereotype.Component;
 @Component
 public class Pagination {
 
+    // Id is always the last sort key, so order is stable and can be continued with keyset token
     public Sort getSort(String sortField, String sortDir) {
-        Sort sort = Sort.by(sortField);
+        Sort sort = Sort.by(sortField, "id");
 
         if (sortDir.equals("asc")) {
             sort = sort.ascending();
@@ -0,0 +1,67 @@
+package maksim.reviewsservice.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import lombok.Getter;
+import maksim.reviewsservice.exceptions.BadRequestException;
+import maksim.reviewsservice.models.dtos.ReviewDto;
+import maksim.reviewsservice.utils.enums.SortField;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+/*
+    Opaque cursor for keyset pagination: sort key and id of the last returned review
+ */
+@Getter
+public class ReviewContinuationToken {
+    private static final String SEPARATOR = "|";
+
+    private final SortField sortField;
+    private final int lastValue;
+    private final int lastId;
+
+    private ReviewContinuationToken(SortField sortField, int lastValue, int lastId) {
+        this.sortField = sortField;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    public static ReviewContinuationToken of(ReviewDto lastReview, SortField sortField) {
+        int lastValue = switch (sortField) {
+            case RATING -> lastReview.getRating();
+            case LIKES -> lastReview.getLikes();
+        };
+
+        return new ReviewContinuationToken(sortField, lastValue, lastReview.getId());
+    }
+
+    public static ReviewContinuationToken decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR);
+
+            return new ReviewContinuationToken(
+                SortField.fromValue(parts[0]),
+                Integer.parseInt(parts[1]),
+                Integer.parseInt(parts[2])
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid continuation token");
+        }
+    }
+
+    public String encode() {
+        String raw = sortField.getValue() + SEPARATOR + lastValue + SEPARATOR + lastId;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public KeysetScrollPosition toScrollPosition() {
+        return ScrollPosition.forward(Map.of(
+            sortField.getValue(), lastValue,
+            "id", lastId
+        ));
+    }
+
+}
@@ -7,6 +7,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import maksim.reviewsservice.models.dtos.*;
 import maksim.reviewsservice.services.ReviewService;
 import maksim.reviewsservice.utils.Pagination;
+import maksim.reviewsservice.utils.ReviewContinuationToken;
+import maksim.reviewsservice.utils.enums.SortField;
 import maksim.reviewsservice.utils.validators.StringValidators;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -67,6 +69,30 @@ class ReviewControllerTest {
                 .andExpect(jsonPath("$[0]").exists());
     }
 
+    @Test
+    void getReviewsByUserOrBookId_WithContinuationToken_ShouldScrollAndReturnNextToken() throws Exception {
+        ReviewDto lastReview = new ReviewDto();
+        lastReview.setId(5);
+        lastReview.setRating(4);
+
+        ReviewDto previousReview = new ReviewDto();
+        previousReview.setId(3);
+        previousReview.setRating(5);
+
+        when(reviewService.scrollByBookOrUserId(anyInt(), any(), any(), any(), any())).thenReturn(List.of(lastReview));
+        when(pagination.getPageable(anyInt(), anyInt(), any(), any())).thenReturn(Pageable.unpaged());
+
+        mockMvc.perform(get("/api/v1/reviews")
+                        .param("id", "1")
+                        .param("criteria", "bookId")
+                        .param("pageSize", "1")
+                        .param("continuationToken", ReviewContinuationToken.of(previousReview, SortField.RATING).encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Continuation-Token", ReviewContinuationToken.of(lastReview, SortField.RATING).encode()));
+
+        verify(reviewService, never()).getAllByBookOrUserId(anyInt(), any(), any(), any());
+    }
+
     @Test
     void addReview_Success() throws Exception {
         when(reviewService.addReview(any())).thenReturn(new ReviewDto());
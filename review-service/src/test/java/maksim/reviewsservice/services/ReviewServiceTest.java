@@ -7,6 +7,8 @@ import maksim.reviewsservice.models.dtos.ReviewDto;
 import maksim.reviewsservice.models.dtos.UpdateReviewDto;
 import maksim.reviewsservice.models.entities.Review;
 import maksim.reviewsservice.models.entities.User;
+import maksim.reviewsservice.models.projections.LikedUserRow;
+import maksim.reviewsservice.models.projections.ReviewRow;
 import maksim.reviewsservice.repositories.ReviewRepository;
 import maksim.reviewsservice.repositories.UserRepository;
 import maksim.reviewsservice.utils.enums.JoinMode;
@@ -117,6 +119,40 @@ class ReviewServiceTest {
 //        verify(reviewRepository, times(1)).save(any(Review.class));
 //    }
 
+    @Test
+    void getAllByBookOrUserId_WithJoin_ShouldLoadLikedUsersOfPageInOneQuery() {
+        List<ReviewRow> rows = List.of(
+            new ReviewRow(1, "first", 5, 1, 7, 3, "author", null, "author@mail.com"),
+            new ReviewRow(2, "second", 4, 0, 7, 3, "author", null, "author@mail.com")
+        );
+
+        when(reviewRepository.findRowsWithAuthorByBookId(7, pageable)).thenReturn(rows);
+        when(reviewRepository.findLikedUsersRows(List.of(1, 2)))
+            .thenReturn(List.of(new LikedUserRow(1, 4, "fan", null, "fan@mail.com")));
+
+        List<ReviewDto> result = reviewService.getAllByBookOrUserId(7, SelectionCriteria.BOOK, JoinMode.WITH, pageable);
+
+        assertEquals(2, result.size());
+        assertEquals("author", result.get(0).getAuthor().getName());
+        assertEquals(1, result.get(0).getLikedUsers().size());
+        assertTrue(result.get(1).getLikedUsers().isEmpty());
+
+        verify(reviewRepository, times(1)).findLikedUsersRows(any());
+    }
+
+    @Test
+    void getAllByBookOrUserId_WithoutJoin_ShouldNotLoadLikedUsers() {
+        when(reviewRepository.findRowsByUserId(3, pageable))
+            .thenReturn(List.of(new ReviewRow(1, "first", 5, 1, 7)));
+
+        List<ReviewDto> result = reviewService.getAllByBookOrUserId(3, SelectionCriteria.USER, JoinMode.WITHOUT, pageable);
+
+        assertEquals(1, result.size());
+        assertNull(result.get(0).getAuthor());
+
+        verify(reviewRepository, never()).findLikedUsersRows(any());
+    }
+
     @Test
     void addLike() {
         User user = new User();
@@ -49,4 +49,16 @@ public class AppConfig {
     @Value("${" + kafkaPath + "new-visit" + "}")
     private String kafkaNewVisitTopic;
 
+
+    /*
+        VISITS PARAMETERS:
+        visits are sent when there are upload_visits_size of them or every upload_visits_interval ms
+     */
+
+    @Value("${spring.application.upload_visits_size}")
+    private Long visitsUploadSize;
+
+    @Value("${spring.application.upload_visits_interval}")
+    private Long visitsUploadInterval;
+
 }
@@ -18,6 +18,7 @@ import maksim.userservice.models.dtos.crud.*;
 import maksim.userservice.models.dtos.result.BookDto;
 import maksim.userservice.models.dtos.result.UserDto;
 import maksim.userservice.services.UserService;
+import maksim.userservice.utils.BookContinuationToken;
 import maksim.userservice.utils.enums.BookStatus;
 import maksim.userservice.utils.enums.JoinMode;
 import maksim.userservice.utils.validators.CreateUserDtoValidators;
@@ -47,6 +48,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    private static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
     private final UserService userService;
     private final CreateUserDtoValidators createUserDtoValidators;
     private final UpdateUserDtoValidators updateUserDtoValidators;
@@ -122,20 +125,32 @@ public class UserController {
         @Parameter(description = "page size", required = true)
         @NotNull(message = "Page size shouldn't be null") @Min(value = 0, message = "Page size should be greater than 0")
         @RequestParam(name = "pageSize", required = false, defaultValue = "20")
-        int pageSize
+        int pageSize,
+
+        @Parameter(description = "X-Continuation-Token of previous page, replaces page num", required = false)
+        @Size(max = 100, message = "Too much chars for continuation token")
+        @RequestParam(name = "continuationToken", required = false)
+        String continuationToken
     ) {
         BookStatus bookStatus = BookStatus.fromValue(strStatus);
 
         logger.trace("BookController method entrance: getAllBooksByUserStatus | Params: userId {} ; status {} ; page num/size {}/{}",
             userId, bookStatus, pageNum, pageSize);
 
-        Pageable pageable = PageRequest.of(pageNum, pageSize);
+        Integer afterBookId = (continuationToken != null) ? BookContinuationToken.decode(continuationToken) : null;
+        Pageable pageable = PageRequest.of((afterBookId != null) ? 0 : pageNum, pageSize);
 
-        List<BookDto> books = userService.getAllBooksByUserStatus(userId, bookStatus, pageable);
+        List<BookDto> books = userService.getAllBooksByUserStatus(userId, bookStatus, afterBookId, pageable);
 
         logger.trace("BookController method return: getAllBooksByUserStatus | Found {} items", books.size());
 
-        return ResponseEntity.ok(books);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (!books.isEmpty() && books.size() == pageSize) {
+            response.header(CONTINUATION_TOKEN_HEADER, BookContinuationToken.encode(books.get(books.size() - 1).getId()));
+        }
+
+        return response.body(books);
     }
 
 
@@ -2,6 +2,7 @@ package maksim.userservice.models.dtos.result;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import maksim.userservice.models.entities.Book;
+import maksim.userservice.models.projections.BookRow;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
@@ -56,4 +57,19 @@ public class BookDto {
         this.likes = book.getLikes();
         this.author = new UserDto(book.getAuthor(), JoinMode.WITHOUT);
     }
+
+    public BookDto(BookRow row) {
+        this.id = row.id();
+        this.name = row.name();
+        this.filePath = row.filePath();
+        this.rating = row.rating();
+        this.ratingsCount = row.ratingCount();
+        this.issuedDate = row.issuedDate();
+        this.genres = row.genres();
+        this.likes = row.likes();
+
+        if (row.authorId() != null) {
+            this.author = new UserDto(row.authorId(), row.authorName(), row.authorProfilePicPath(), row.authorEmail());
+        }
+    }
 }
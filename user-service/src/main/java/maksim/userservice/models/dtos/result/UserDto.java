@@ -31,6 +31,13 @@ public class UserDto {
 
     private List<BookDto> likedBooks = null;
 
+    public UserDto(Integer id, String name, String profilePicPath, String email) {
+        this.id = id;
+        this.name = name;
+        this.profilePicPath = profilePicPath;
+        this.email = email;
+    }
+
     public UserDto(User user, JoinMode mode) {
         this.id = user.getId();
         this.name = user.getName();
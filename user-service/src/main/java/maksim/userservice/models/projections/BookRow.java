@@ -0,0 +1,22 @@
+package maksim.userservice.models.projections;
+
+import java.util.Date;
+import java.util.List;
+
+/*
+    Read-only row of user's books list, selected by jpql constructor expression
+ */
+public record BookRow(
+    int id,
+    String name,
+    String filePath,
+    float rating,
+    int ratingCount,
+    Date issuedDate,
+    List<String> genres,
+    int likes,
+    Integer authorId,
+    String authorName,
+    String authorProfilePicPath,
+    String authorEmail
+) {}
@@ -3,7 +3,7 @@ package maksim.userservice.repositories;
 import java.util.List;
 import java.util.Optional;
 import maksim.userservice.models.entities.User;
-import maksim.userservice.models.entities.UserBookStatus;
+import maksim.userservice.models.projections.BookRow;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -19,13 +19,24 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.bookStatuses s JOIN FETCH s.book k LEFT JOIN FETCH u.likedBooks l WHERE u.id = :id")
     Optional<User> findByIdWithJoinStatusesAndBooks(@Param(value = "id") int id);
 
-    @Query("SELECT s FROM User u "
+    @Query("SELECT new maksim.userservice.models.projections.BookRow("
+            + "b.id, b.name, b.filePath, b.rating, b.ratingCount, b.issuedDate, b.genres, b.likes, "
+            + "a.id, a.name, a.profilePicPath, a.email) "
+            + "FROM User u "
             + "JOIN u.bookStatuses s "
-            + "JOIN FETCH s.book b "
+            + "JOIN s.book b "
+            + "LEFT JOIN b.author a "
             + "WHERE ((s.status = :status) "
             + "OR :status = 'ANY') "
-            + "AND u.id = :userId")
-    List<UserBookStatus> findAllBooksByUserStatus(@Param("userId") int userId, @Param("status") String status, Pageable pageable);
+            + "AND u.id = :userId "
+            + "AND (:afterBookId IS NULL OR b.id > :afterBookId) "
+            + "ORDER BY b.id")
+    List<BookRow> findAllBooksByUserStatus(
+        @Param("userId") int userId,
+        @Param("status") String status,
+        @Param("afterBookId") Integer afterBookId,
+        Pageable pageable
+    );
 
     Optional<User> findByName(String name);
 
@@ -1,6 +1,5 @@
 package maksim.userservice.services;
 
-import jakarta.transaction.Transactional;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -26,6 +25,7 @@ import maksim.userservice.models.dtos.result.UserDto;
 import maksim.userservice.models.entities.Book;
 import maksim.userservice.models.entities.User;
 import maksim.userservice.models.entities.UserBookStatus;
+import maksim.userservice.models.projections.BookRow;
 import maksim.userservice.repositories.UserBookStatusRepository;
 import maksim.userservice.repositories.UserRepository;
 import maksim.userservice.services.kafka.producers.LikeEventsProducer;
@@ -40,6 +40,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 @Service
@@ -100,17 +101,17 @@ public class UserService {
         return new UserDto(user, mode);
     }
 
-    public List<BookDto> getAllBooksByUserStatus(int userId, BookStatus status, Pageable pageable) {
-        logger.trace("UserService method entrance: getAllReadingBooks | Params: user id {}", userId);
+    // afterBookId - keyset position (id of the last book of previous page), null for offset paging
+    @Transactional(readOnly = true)
+    public List<BookDto> getAllBooksByUserStatus(int userId, BookStatus status, Integer afterBookId, Pageable pageable) {
+        logger.trace("UserService method entrance: getAllReadingBooks | Params: user id {} ; after book {}", userId, afterBookId);
 
-        List<UserBookStatus> statuses = userRepository.findAllBooksByUserStatus(userId, status.toString(), pageable);
+        List<BookRow> rows = userRepository.findAllBooksByUserStatus(userId, status.toString(), afterBookId, pageable);
 
-        List<BookDto> books = new ArrayList<>(statuses.size());
+        List<BookDto> books = new ArrayList<>(rows.size());
 
-        for (UserBookStatus st : statuses) {
-            books.add(new BookDto(
-                st.getBook(), BookStatus.fromValue(st.getStatus())
-            ));
+        for (BookRow row : rows) {
+            books.add(new BookDto(row));
         }
 
         logger.trace("UserService method end: getAllReadingBooks | Is found {} books", books.size());
@@ -0,0 +1,35 @@
+package maksim.userservice.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import maksim.userservice.exceptions.BadRequestException;
+
+/*
+    Opaque cursor for user's books listing: books are ordered by id,
+    so the id of the last returned book is enough to seek the next page
+ */
+public class BookContinuationToken {
+    private static final String PREFIX = "book|";
+
+    private BookContinuationToken() {}
+
+    public static String encode(int lastBookId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastBookId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+
+            if (!decoded.startsWith(PREFIX)) {
+                throw new BadRequestException("Invalid continuation token");
+            }
+
+            return Integer.parseInt(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid continuation token");
+        }
+    }
+
+}
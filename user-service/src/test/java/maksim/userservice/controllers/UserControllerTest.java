@@ -9,7 +9,9 @@ import maksim.userservice.models.dtos.crud.UpdateUserDto;
 import maksim.userservice.models.dtos.result.BookDto;
 import maksim.userservice.models.dtos.result.UserDto;
 import maksim.userservice.models.entities.Book;
+import maksim.userservice.models.entities.User;
 import maksim.userservice.services.UserService;
+import maksim.userservice.utils.BookContinuationToken;
 import maksim.userservice.utils.enums.BookStatus;
 import maksim.userservice.utils.validators.CreateUserDtoValidators;
 import maksim.userservice.utils.validators.UpdateUserDtoValidators;
@@ -49,7 +51,7 @@ class UserControllerTest {
 //    void testGetAllBooksByUserStatus_Success() throws Exception {
 //        BookDto bookDto = new BookDto(new Book(), BookStatus.READ);
 //
-//        when(userService.getAllBooksByUserStatus(anyInt(), any(), any())).thenReturn(List.of(bookDto));
+//        when(userService.getAllBooksByUserStatus(anyInt(), any(), any(), any())).thenReturn(List.of(bookDto));
 //
 //        mockMvc.perform(get("/api/v1/users/1/books")
 //                        .param("status", "READ")
@@ -61,7 +63,7 @@ class UserControllerTest {
 
     @Test
     void testGetAllBooksByUserStatus_EmptyList() throws Exception {
-        when(userService.getAllBooksByUserStatus(anyInt(), any(), any())).thenReturn(Collections.emptyList());
+        when(userService.getAllBooksByUserStatus(anyInt(), any(), any(), any())).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/api/v1/users/1/books")
                         .param("status", "READ")
@@ -71,6 +73,23 @@ class UserControllerTest {
                 .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    void testGetAllBooksByUserStatus_ContinuationToken_ShouldSeekAfterLastBook() throws Exception {
+        Book book = new Book();
+        book.setId(12);
+        book.setAuthor(new User());
+        BookDto bookDto = new BookDto(book, BookStatus.READ);
+
+        when(userService.getAllBooksByUserStatus(eq(1), any(), eq(7), any())).thenReturn(List.of(bookDto));
+
+        mockMvc.perform(get("/api/v1/users/1/books")
+                        .param("status", "READ")
+                        .param("pageSize", "1")
+                        .param("continuationToken", BookContinuationToken.encode(7)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Continuation-Token", BookContinuationToken.encode(12)));
+    }
+
     @Test
     void testGetUserById_Success() throws Exception {
         UserDto userDto = new UserDto();
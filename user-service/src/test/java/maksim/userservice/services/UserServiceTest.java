@@ -18,6 +18,7 @@ import maksim.userservice.models.dtos.result.UserDto;
 import maksim.userservice.models.entities.Book;
 import maksim.userservice.models.entities.User;
 import maksim.userservice.models.entities.UserBookStatus;
+import maksim.userservice.models.projections.BookRow;
 import maksim.userservice.repositories.UserRepository;
 import maksim.userservice.services.kafka.producers.LikeEventsProducer;
 import maksim.userservice.services.kafka.producers.StatusEventsProducer;
@@ -36,6 +37,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.client.RestTemplate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -125,25 +127,41 @@ class UserServiceTest {
 //    void testGetAllBooksByUserStatus_Success() {
 //        List<UserBookStatus> statuses = Arrays.asList(userBookStatus, userBookStatus);
 //
-//        when(userRepository.findAllBooksByUserStatus(anyInt(), anyString(), any(Pageable.class))).thenReturn(statuses);
+//        when(userRepository.findAllBooksByUserStatus(anyInt(), anyString(), any(), any(Pageable.class))).thenReturn(statuses);
 //
-//        List<BookDto> result = userService.getAllBooksByUserStatus(1, BookStatus.READ, PageRequest.of(0, 10));
+//        List<BookDto> result = userService.getAllBooksByUserStatus(1, BookStatus.READ, null, PageRequest.of(0, 10));
 //
 //        assertEquals(2, result.size());
 //
-//        verify(userRepository, times(1)).findAllBooksByUserStatus(anyInt(), anyString(), any(Pageable.class));
+//        verify(userRepository, times(1)).findAllBooksByUserStatus(anyInt(), anyString(), any(), any(Pageable.class));
 //    }
 
+    @Test
+    void testGetAllBooksByUserStatus_Rows_ShouldMapToBookDtos() {
+        List<BookRow> rows = List.of(
+            new BookRow(1, "first", null, 4.5f, 2, new Date(), List.of("Fantasy"), 3, 7, "author", null, "author@mail.com"),
+            new BookRow(2, "second", null, 0, 0, new Date(), List.of(), 0, null, null, null, null)
+        );
+
+        when(userRepository.findAllBooksByUserStatus(anyInt(), anyString(), any(), any(Pageable.class))).thenReturn(rows);
+
+        List<BookDto> result = userService.getAllBooksByUserStatus(1, BookStatus.READ, null, PageRequest.of(0, 10));
+
+        assertEquals(2, result.size());
+        assertEquals("author", result.get(0).getAuthor().getName());
+        assertNull(result.get(1).getAuthor());
+    }
+
     @Test
     void testGetAllBooksByUserStatus_EmptyList() {
-        when(userRepository.findAllBooksByUserStatus(anyInt(), anyString(), any(Pageable.class)))
+        when(userRepository.findAllBooksByUserStatus(anyInt(), anyString(), any(), any(Pageable.class)))
             .thenReturn(new ArrayList<>());
 
-        List<BookDto> result = userService.getAllBooksByUserStatus(1, BookStatus.READ, PageRequest.of(0, 10));
+        List<BookDto> result = userService.getAllBooksByUserStatus(1, BookStatus.READ, null, PageRequest.of(0, 10));
 
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(userRepository, times(1)).findAllBooksByUserStatus(anyInt(), anyString(), any(Pageable.class));
+        verify(userRepository, times(1)).findAllBooksByUserStatus(anyInt(), anyString(), any(), any(Pageable.class));
     }
 
     @Test
@@ -7,7 +7,11 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "visits")
+// Unique (service_name, method) is the conflict target of visits upsert (VisitUpsertRepository)
+@Table(
+    name = "visits",
+    uniqueConstraints = @UniqueConstraint(name = "visits_service_name_method_key", columnNames = {"service_name", "method"})
+)
 public class Visit {
 
     @Id
@@ -23,4 +27,11 @@ public class Visit {
     @Column(name = "count")
     private Long count;
 
+    @Column(name = "errors")
+    private Long errors;
+
+    // Merged compressed latency histogram (LatencyHistograms) of all visits
+    @Column(name = "latencies")
+    private byte[] latencies;
+
 }
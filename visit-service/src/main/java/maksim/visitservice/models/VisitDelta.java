@@ -0,0 +1,8 @@
+package maksim.visitservice.models;
+
+/*
+    Change of one visits row: count and errors are increments,
+    latencies is the whole merged histogram (histograms can't be merged in sql)
+ */
+public record VisitDelta(String serviceName, String method, long count, long errors, byte[] latencies) {
+}
@@ -3,6 +3,8 @@ package maksim.visitservice.models;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import maksim.kafkaclient.visits.LatencyHistograms;
+import org.HdrHistogram.Histogram;
 
 @Getter
 @Setter
@@ -15,10 +17,40 @@ public class VisitDto {
 
     private Long count;
 
+    private Long errors;
+
+    // Latency percentiles in milliseconds, null when there are no latencies yet
+    private Double latencyP50;
+
+    private Double latencyP95;
+
+    private Double latencyP99;
+
+    public VisitDto(String serviceName, String method, Long count, Long errors, Histogram latencies) {
+        this.serviceName = serviceName;
+        this.method = method;
+        this.count = count;
+        this.errors = errors;
+
+        if (latencies.getTotalCount() > 0) {
+            this.latencyP50 = toMillis(latencies.getValueAtPercentile(50));
+            this.latencyP95 = toMillis(latencies.getValueAtPercentile(95));
+            this.latencyP99 = toMillis(latencies.getValueAtPercentile(99));
+        }
+    }
+
     public VisitDto(Visit visit) {
-        this.serviceName = visit.getServiceName();
-        this.method = visit.getMethod();
-        this.count = visit.getCount();
+        this(
+            visit.getServiceName(),
+            visit.getMethod(),
+            visit.getCount(),
+            visit.getErrors() == null ? 0L : visit.getErrors(),
+            visit.getLatencies() == null ? LatencyHistograms.create() : LatencyHistograms.decode(visit.getLatencies())
+        );
+    }
+
+    private static Double toMillis(long micros) {
+        return micros / 1000.0;
     }
 
 }
@@ -0,0 +1,41 @@
+package maksim.visitservice.repositories;
+
+import java.util.List;
+import maksim.visitservice.models.VisitDelta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/*
+    Visits are written as increments with one jdbc batch (one statement per changed row),
+    so a message costs the same however many rows the table has
+ */
+@Repository
+public class VisitUpsertRepository {
+    private static final String UPSERT_VISIT = """
+        INSERT INTO visits (service_name, method, count, errors, latencies)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (service_name, method) DO UPDATE SET
+            count = visits.count + EXCLUDED.count,
+            errors = COALESCE(visits.errors, 0) + EXCLUDED.errors,
+            latencies = EXCLUDED.latencies
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public VisitUpsertRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void upsertAll(List<VisitDelta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_VISIT, deltas, deltas.size(), (statement, delta) -> {
+            statement.setString(1, delta.serviceName());
+            statement.setString(2, delta.method());
+            statement.setLong(3, delta.count());
+            statement.setLong(4, delta.errors());
+            statement.setBytes(5, delta.latencies());
+        });
+    }
+
+}
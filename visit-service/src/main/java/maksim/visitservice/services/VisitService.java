@@ -2,85 +2,104 @@ package maksim.visitservice.services;
 
 import maksim.kafkaclient.dtos.ListOfNewVisitsKafkaDto;
 import maksim.kafkaclient.dtos.VisitKafkaDto;
+import maksim.kafkaclient.visits.LatencyHistograms;
 import maksim.visitservice.models.Visit;
+import maksim.visitservice.models.VisitDelta;
 import maksim.visitservice.models.VisitDto;
 import maksim.visitservice.repositories.VisitRepository;
+import maksim.visitservice.repositories.VisitUpsertRepository;
+import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Visits are aggregated in memory by (service, method). Aggregates are immutable and replaced
+    after the batch was written, so readers never wait for ingest, and a message which failed to be
+    written (and will be redelivered) doesn't change them
+ */
 @Service
 public class VisitService {
     private static final Logger logger = LoggerFactory.getLogger(VisitService.class);
 
-    private VisitRepository visitRepository;
-    private List<Visit> visitEntries;
+    private final VisitUpsertRepository visitUpsertRepository;
+    private final Map<VisitKey, VisitAggregate> visits = new ConcurrentHashMap<>();
 
-    @Autowired
-    public VisitService(VisitRepository visitRepository) {
-        this.visitRepository = visitRepository;
+    private record VisitKey(String serviceName, String method) { }
+
+    // Histogram is never changed after aggregate is created, dto is what readers get
+    private record VisitAggregate(long count, long errors, Histogram latencies, VisitDto dto) { }
 
-        visitEntries = visitRepository.findAll();
+    @Autowired
+    public VisitService(VisitRepository visitRepository, VisitUpsertRepository visitUpsertRepository) {
+        this.visitUpsertRepository = visitUpsertRepository;
+
+        for (Visit visit : visitRepository.findAll()) {
+            long count = visit.getCount() == null ? 0L : visit.getCount();
+            long errors = visit.getErrors() == null ? 0L : visit.getErrors();
+            Histogram latencies = visit.getLatencies() == null
+                ? LatencyHistograms.create()
+                : LatencyHistograms.decode(visit.getLatencies());
+
+            visits.put(
+                new VisitKey(visit.getServiceName(), visit.getMethod()),
+                new VisitAggregate(count, errors, latencies, new VisitDto(visit.getServiceName(), visit.getMethod(), count, errors, latencies))
+            );
+        }
     }
 
-    synchronized public void addNewVisitEntry(String method, String serviceName, Long count) {
-        logger.trace("Visit service method entrance: addNewVisitEntry");
+    // Messages are written one by one, so two batches never merge latencies from the same histogram
+    synchronized public void addListOfVisits(ListOfNewVisitsKafkaDto newVisits) {
+        logger.trace("Visit service method entrance: addListOfVisits");
 
-        Visit newVisit = new Visit();
-        newVisit.setServiceName(serviceName);
-        newVisit.setMethod(method);
-        newVisit.setCount(count);
+        Map<VisitKey, VisitAggregate> updated = new LinkedHashMap<>();
 
-        visitRepository.save(newVisit);
+        for (VisitKafkaDto newVisit : newVisits.getNewVisits()) {
+            VisitKey key = new VisitKey(newVisit.getServiceName(), newVisit.getMethod());
+            VisitAggregate current = updated.containsKey(key) ? updated.get(key) : visits.get(key);
 
-        visitEntries.add(newVisit);
+            updated.put(key, merge(key, current, newVisit));
+        }
 
-        logger.trace("Visit service method end: addNewVisitEntry");
-    }
+        if (updated.isEmpty()) {
+            return;
+        }
 
-    synchronized public void addListOfVisits(ListOfNewVisitsKafkaDto newVisits) {
-        logger.trace("Visit service method entrance: addListOfVisits");
+        List<VisitDelta> deltas = new ArrayList<>(updated.size());
 
-        boolean isFound = false;
+        for (Map.Entry<VisitKey, VisitAggregate> entry : updated.entrySet()) {
+            VisitAggregate previous = visits.get(entry.getKey());
+            VisitAggregate aggregate = entry.getValue();
 
-        for (VisitKafkaDto newVisit : newVisits.getNewVisits()) {
-            for (Visit visitEntry : visitEntries) {
-                if (
-                    visitEntry.getMethod().equals(newVisit.getMethod())
-                    && visitEntry.getServiceName().equals(newVisit.getServiceName())
-                ) {
-                    visitEntry.setCount(
-                        visitEntry.getCount() + newVisit.getCount()
-                    );
-
-                    isFound = true;
-
-                    break;
-                }
-            }
-
-            if (!isFound) {
-                addNewVisitEntry(newVisit.getMethod(), newVisit.getServiceName(), newVisit.getCount());
-            } else {
-                isFound = false;
-            }
+            deltas.add(new VisitDelta(
+                entry.getKey().serviceName(),
+                entry.getKey().method(),
+                aggregate.count() - (previous == null ? 0L : previous.count()),
+                aggregate.errors() - (previous == null ? 0L : previous.errors()),
+                LatencyHistograms.encode(aggregate.latencies())
+            ));
         }
 
-        visitRepository.saveAll(visitEntries);
+        visitUpsertRepository.upsertAll(deltas);
 
-        logger.trace("Visit service method end: addListOfVisits");
+        visits.putAll(updated);
+
+        logger.trace("Visit service method end: addListOfVisits | {} rows were updated", deltas.size());
     }
 
-    synchronized public List<VisitDto> getAllVisits() {
+    public List<VisitDto> getAllVisits() {
         logger.trace("Visit service method entrance: getAllVisits");
 
-        List<VisitDto> visitDtos = new ArrayList<>(visitEntries.size());
+        List<VisitDto> visitDtos = new ArrayList<>(visits.size());
 
-        visitEntries.forEach(visitEntry ->
-            visitDtos.add(new VisitDto(visitEntry))
+        visits.values().forEach(visit ->
+            visitDtos.add(visit.dto())
         );
 
         logger.trace("Visit service method end: getAllVisits");
@@ -88,6 +107,20 @@ public class VisitService {
         return visitDtos;
     }
 
+    // Visits of older producers have no errors and latencies
+    private static VisitAggregate merge(VisitKey key, VisitAggregate current, VisitKafkaDto newVisit) {
+        long count = (current == null ? 0L : current.count())
+            + (newVisit.getCount() == null ? 0L : newVisit.getCount());
+        long errors = (current == null ? 0L : current.errors())
+            + (newVisit.getErrors() == null ? 0L : newVisit.getErrors());
 
-}
+        Histogram latencies = current == null ? LatencyHistograms.create() : current.latencies().copy();
 
+        if (newVisit.getLatencies() != null) {
+            latencies.add(LatencyHistograms.decodeFromString(newVisit.getLatencies()));
+        }
+
+        return new VisitAggregate(count, errors, latencies, new VisitDto(key.serviceName(), key.method(), count, errors, latencies));
+    }
+
+}
@@ -0,0 +1,23 @@
+-- Runs after hibernate schema update (see spring.jpa.defer-datasource-initialization),
+-- so every statement here should be idempotent
+
+-- Rows of one (service, method) written before the unique key existed are merged into the oldest one.
+-- Histograms can't be merged in sql, so the oldest row keeps its latencies
+UPDATE visits v
+SET count = d.count, errors = d.errors
+FROM (
+    SELECT MIN(id) AS id, SUM(COALESCE(count, 0)) AS count, SUM(COALESCE(errors, 0)) AS errors
+    FROM visits
+    GROUP BY service_name, method
+    HAVING COUNT(*) > 1
+) d
+WHERE v.id = d.id;
+
+DELETE FROM visits v
+USING visits kept
+WHERE kept.service_name IS NOT DISTINCT FROM v.service_name
+    AND kept.method IS NOT DISTINCT FROM v.method
+    AND kept.id < v.id;
+
+-- Conflict target of visits upsert (VisitUpsertRepository), hibernate update doesn't add it to existing table
+CREATE UNIQUE INDEX IF NOT EXISTS visits_service_name_method_key ON visits (service_name, method);
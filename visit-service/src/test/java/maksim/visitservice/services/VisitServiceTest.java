@@ -0,0 +1,140 @@
+package maksim.visitservice.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Comparator;
+import java.util.List;
+import maksim.kafkaclient.dtos.ListOfNewVisitsKafkaDto;
+import maksim.kafkaclient.dtos.VisitKafkaDto;
+import maksim.kafkaclient.visits.LatencyHistograms;
+import maksim.visitservice.models.Visit;
+import maksim.visitservice.models.VisitDelta;
+import maksim.visitservice.models.VisitDto;
+import maksim.visitservice.repositories.VisitRepository;
+import maksim.visitservice.repositories.VisitUpsertRepository;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+@ExtendWith(MockitoExtension.class)
+class VisitServiceTest {
+
+    @Mock
+    private VisitRepository visitRepository;
+
+    @Mock
+    private VisitUpsertRepository visitUpsertRepository;
+
+    private VisitService visitService;
+
+    @BeforeEach
+    void setUp() {
+        // Row written by older version: it has no latencies
+        Visit visit = new Visit();
+        visit.setServiceName("book-service");
+        visit.setMethod("getBook");
+        visit.setCount(5L);
+        visit.setErrors(1L);
+
+        when(visitRepository.findAll()).thenReturn(List.of(visit));
+
+        visitService = new VisitService(visitRepository, visitUpsertRepository);
+    }
+
+    private static VisitKafkaDto newVisit(String serviceName, String method, long count, long errors, long... latenciesMicros) {
+        Histogram latencies = LatencyHistograms.create();
+
+        for (long latency : latenciesMicros) {
+            latencies.recordValue(latency);
+        }
+
+        return new VisitKafkaDto(method, serviceName, count, errors, LatencyHistograms.encodeToString(latencies));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<VisitDelta> writtenDeltas() {
+        ArgumentCaptor<List<VisitDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(visitUpsertRepository).upsertAll(deltas.capture());
+
+        return deltas.getValue();
+    }
+
+    private VisitDto visit(String serviceName, String method) {
+        return visitService.getAllVisits().stream()
+            .filter(visit -> visit.getServiceName().equals(serviceName) && visit.getMethod().equals(method))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @Test
+    void addListOfVisits_ExistingAndNewMethods_ShouldWriteIncrements() {
+        visitService.addListOfVisits(new ListOfNewVisitsKafkaDto(List.of(
+            newVisit("book-service", "getBook", 2, 1, 1000),
+            newVisit("user-service", "getUser", 1, 0, 2000)
+        )));
+
+        List<VisitDelta> deltas = writtenDeltas().stream()
+            .sorted(Comparator.comparing(VisitDelta::serviceName))
+            .toList();
+
+        assertEquals(2, deltas.size());
+        assertEquals(2, deltas.get(0).count());
+        assertEquals(1, deltas.get(0).errors());
+        // Latencies are the whole merged histogram, not an increment
+        assertEquals(1, LatencyHistograms.decode(deltas.get(0).latencies()).getTotalCount());
+        assertEquals("user-service", deltas.get(1).serviceName());
+        assertEquals(1, deltas.get(1).count());
+
+        assertEquals(7, visit("book-service", "getBook").getCount());
+        assertEquals(2, visit("book-service", "getBook").getErrors());
+        assertEquals(1, visit("user-service", "getUser").getCount());
+    }
+
+    @Test
+    void addListOfVisits_MethodRepeatedInMessage_ShouldWriteOneRow() {
+        visitService.addListOfVisits(new ListOfNewVisitsKafkaDto(List.of(
+            newVisit("user-service", "getUser", 2, 0, 1000, 3000),
+            newVisit("user-service", "getUser", 3, 1, 2000)
+        )));
+
+        List<VisitDelta> deltas = writtenDeltas();
+
+        assertEquals(1, deltas.size());
+        assertEquals(5, deltas.get(0).count());
+        assertEquals(1, deltas.get(0).errors());
+        assertEquals(3, LatencyHistograms.decode(deltas.get(0).latencies()).getTotalCount());
+
+        assertEquals(5, visit("user-service", "getUser").getCount());
+        assertEquals(2.0, visit("user-service", "getUser").getLatencyP50(), 0.05);
+    }
+
+    @Test
+    void addListOfVisits_WriteFailed_ShouldKeepAggregatesForRedelivery() {
+        ListOfNewVisitsKafkaDto message = new ListOfNewVisitsKafkaDto(List.of(
+            newVisit("book-service", "getBook", 2, 0, 1000)
+        ));
+
+        doThrow(new DataAccessResourceFailureException("Database is down"))
+            .doNothing()
+            .when(visitUpsertRepository).upsertAll(anyList());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> visitService.addListOfVisits(message));
+
+        assertEquals(5, visit("book-service", "getBook").getCount());
+        assertNull(visit("book-service", "getBook").getLatencyP50());
+
+        // Redelivered message isn't counted twice
+        visitService.addListOfVisits(message);
+
+        assertEquals(7, visit("book-service", "getBook").getCount());
+        assertEquals(1.0, visit("book-service", "getBook").getLatencyP50(), 0.05);
+    }
+
+}